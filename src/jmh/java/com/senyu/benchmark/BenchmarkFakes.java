@@ -0,0 +1,81 @@
+package com.senyu.benchmark;
+
+import com.senyu.entity.Post;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 基准测试用的替身对象
+ * 被测路径都是CPU密集的组装和编解码逻辑，Mapper和Redis用内存替身代替，测量结果不受网络和数据库抖动影响
+ *
+ * @author senyu
+ */
+final class BenchmarkFakes {
+
+    private BenchmarkFakes() {
+    }
+
+    /**
+     * 按方法名应答的接口替身，未声明的方法调用时抛出异常
+     *
+     * @param type     接口类型
+     * @param handlers 方法名到应答逻辑的映射，入参为方法参数
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> handlers) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + "Stub";
+                };
+            }
+            Function<Object[], Object> answer = handlers.get(method.getName());
+            if (answer == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+            return answer.apply(args);
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * 只用于构建RedisTemplate的连接工厂，不会建立连接
+     */
+    static RedisConnectionFactory connectionFactory() {
+        return stub(RedisConnectionFactory.class, Map.of());
+    }
+
+    /**
+     * 字段填充完整的内容，接近线上缓存中的内容大小
+     */
+    static Post post(Long id) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        Post post = new Post();
+        post.setId(id);
+        post.setUserId(10_000L + id % 1000);
+        post.setContent("今天去了趟海边，天气很好，顺手拍了几张照片，分享给大家。#旅行 #日常 " + id);
+        post.setImages(List.of(
+                "https://cdn.example.com/images/2024/06/" + id + "-1.jpg",
+                "https://cdn.example.com/images/2024/06/" + id + "-2.jpg",
+                "https://cdn.example.com/images/2024/06/" + id + "-3.jpg"));
+        post.setTopic("旅行");
+        post.setLikeCount(1280);
+        post.setCommentCount(64);
+        post.setShareCount(12);
+        post.setViewCount(40_960);
+        post.setStatus(1);
+        post.setCreatedAt(now);
+        post.setUpdatedAt(now);
+        post.setDeleted(0);
+        return post;
+    }
+}
@@ -0,0 +1,120 @@
+package com.senyu.benchmark;
+
+import com.senyu.config.RedisConfig;
+import com.senyu.feed.FeedCursor;
+import com.senyu.feed.FeedEntry;
+import com.senyu.feed.FeedMerger;
+import com.senyu.serializer.LongRedisSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 关注Feed流读路径：时间线成员ID解析与分页组装
+ * <ul>
+ *     <li>decodeJsonMembers：原JSON序列化器读出成员后再toString().parseLong</li>
+ *     <li>decodeRawMembers：ID模板按十进制直接解析为Long</li>
+ *     <li>assemblePage：游标过滤收件箱并与拉模式作者的发件箱归并出一页</li>
+ * </ul>
+ *
+ * @author senyu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedTimelineBenchmark {
+
+    private static final long BASE_SCORE = 1_717_171_717_000L;
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    @Param({"4", "32"})
+    private int pullAuthors;
+
+    private RedisSerializer<Object> jsonSerializer;
+
+    private List<byte[]> jsonMembers;
+
+    private List<byte[]> rawMembers;
+
+    private List<FeedEntry> inbox;
+
+    private List<List<FeedEntry>> outboxPages;
+
+    private FeedCursor cursor;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        jsonSerializer = (RedisSerializer<Object>) new RedisConfig()
+                .redisTemplate(BenchmarkFakes.connectionFactory())
+                .getHashValueSerializer();
+
+        jsonMembers = new ArrayList<>(pageSize);
+        rawMembers = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            long postId = 1_000_000_000L + i;
+            jsonMembers.add(jsonSerializer.serialize(postId));
+            rawMembers.add(LongRedisSerializer.INSTANCE.serialize(postId));
+        }
+
+        // 收件箱与各发件箱的分值交错，游标位于收件箱第一条之后
+        inbox = page(0, 1);
+        outboxPages = new ArrayList<>(pullAuthors);
+        for (int author = 1; author <= pullAuthors; author++) {
+            outboxPages.add(page(author * 1_000_000L, author + 1));
+        }
+        cursor = FeedCursor.of(inbox.get(0));
+    }
+
+    private List<FeedEntry> page(long idBase, int stride) {
+        List<FeedEntry> entries = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            entries.add(new FeedEntry(idBase + pageSize - i, BASE_SCORE - (long) i * stride * 1000));
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public void decodeJsonMembers(Blackhole blackhole) {
+        for (byte[] member : jsonMembers) {
+            blackhole.consume(Long.parseLong(jsonSerializer.deserialize(member).toString()));
+        }
+    }
+
+    @Benchmark
+    public void decodeRawMembers(Blackhole blackhole) {
+        for (byte[] member : rawMembers) {
+            blackhole.consume(LongRedisSerializer.INSTANCE.deserialize(member));
+        }
+    }
+
+    @Benchmark
+    public String assemblePage() {
+        List<List<FeedEntry>> sources = new ArrayList<>(outboxPages.size() + 1);
+        sources.add(FeedCursor.filter(inbox, cursor));
+        for (List<FeedEntry> outbox : outboxPages) {
+            sources.add(FeedCursor.filter(outbox, cursor));
+        }
+        List<FeedEntry> merged = FeedMerger.merge(sources, pageSize);
+        return FeedCursor.of(merged.get(merged.size() - 1)).encode();
+    }
+}
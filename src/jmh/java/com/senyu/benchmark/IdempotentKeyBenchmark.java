@@ -0,0 +1,72 @@
+package com.senyu.benchmark;
+
+import com.senyu.aspect.IdempotentAspect;
+import com.senyu.controller.PostController;
+import com.senyu.dto.PostPublishDTO;
+import com.senyu.entity.Post;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 幂等切面生成key：未传入Idempotency-Key时按预解析的参数属性计算摘要
+ *
+ * @author senyu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdempotentKeyBenchmark {
+
+    private IdempotentAspect aspect;
+
+    private ProceedingJoinPoint joinPoint;
+
+    private Method generateKey;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        aspect = new IdempotentAspect();
+        generateKey = IdempotentAspect.class.getDeclaredMethod("generateKey",
+                ProceedingJoinPoint.class, String.class, String.class, String.class);
+        generateKey.setAccessible(true);
+
+        // 与发布接口的请求体一致
+        Post post = BenchmarkFakes.post(42L);
+        PostPublishDTO dto = new PostPublishDTO();
+        dto.setUserId(post.getUserId());
+        dto.setContent(post.getContent());
+        dto.setImages(post.getImages());
+        dto.setTopic(post.getTopic());
+
+        Method publishMethod = PostController.class.getMethod("publishPost", PostPublishDTO.class);
+        MethodSignature signature = BenchmarkFakes.stub(MethodSignature.class, Map.of(
+                "getDeclaringTypeName", args -> PostController.class.getName(),
+                "getName", args -> "publishPost",
+                "getMethod", args -> publishMethod));
+        joinPoint = BenchmarkFakes.stub(ProceedingJoinPoint.class, Map.of(
+                "getSignature", args -> signature,
+                "getArgs", args -> new Object[]{dto}));
+    }
+
+    @Benchmark
+    public Object generateKey() throws ReflectiveOperationException {
+        return generateKey.invoke(aspect, joinPoint, "post:publish", "10086", null);
+    }
+}
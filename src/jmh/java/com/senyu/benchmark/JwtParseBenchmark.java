@@ -0,0 +1,54 @@
+package com.senyu.benchmark;
+
+import com.senyu.config.JwtConfig;
+import com.senyu.util.JwtUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT解析：不经缓存的完整验签，以及拦截器使用的带验签缓存的解析
+ *
+ * @author senyu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtParseBenchmark {
+
+    private static final Long USER_ID = 10_086L;
+
+    private static final Integer TOKEN_VERSION = 3;
+
+    private JwtUtil jwtUtil;
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil(new JwtConfig());
+        token = jwtUtil.generateAccessToken(USER_ID, "benchmark", TOKEN_VERSION);
+    }
+
+    @Benchmark
+    public Object parseClaims() {
+        return jwtUtil.getClaimsFromToken(token);
+    }
+
+    @Benchmark
+    public Object parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+}
@@ -0,0 +1,109 @@
+package com.senyu.benchmark;
+
+import com.senyu.config.FeedConfig;
+import com.senyu.entity.Post;
+import com.senyu.feed.TimelineWriter;
+import com.senyu.mapper.FeedInboxMapper;
+import com.senyu.mapper.FollowMapper;
+import com.senyu.service.UserActivityService;
+import com.senyu.strategy.impl.PushFeedStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推模式分发：按粉丝游标分页、构建收件箱记录并分批写入
+ * Mapper、活跃度索引和时间线写入均为内存替身，只测量策略自身的列表构建与分批开销
+ *
+ * @author senyu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PushFanoutBenchmark {
+
+    @Param({"1000", "20000"})
+    private int followers;
+
+    private PushFeedStrategy strategy;
+
+    private Post post;
+
+    /**
+     * 写入的收件箱记录数，防止分批写入被优化掉
+     */
+    private long inserted;
+
+    @Setup
+    public void setup() {
+        List<Long> followerIds = new ArrayList<>(followers);
+        for (long id = 1; id <= followers; id++) {
+            followerIds.add(id);
+        }
+
+        FollowMapper followMapper = BenchmarkFakes.stub(FollowMapper.class, Map.of(
+                "selectActiveFollowerIdsAfter", args -> {
+                    // 粉丝ID连续，游标之后的第一个粉丝下标即为游标值
+                    int from = (int) Math.min((Long) args[1], followers);
+                    int to = Math.min(from + (Integer) args[2], followers);
+                    return followerIds.subList(from, to);
+                }));
+        FeedInboxMapper feedInboxMapper = BenchmarkFakes.stub(FeedInboxMapper.class, Map.of(
+                "insertBatch", args -> {
+                    List<?> batch = (List<?>) args[0];
+                    inserted += batch.size();
+                    return batch.size();
+                }));
+
+        strategy = new PushFeedStrategy();
+        ReflectionTestUtils.setField(strategy, "followMapper", followMapper);
+        ReflectionTestUtils.setField(strategy, "feedInboxMapper", feedInboxMapper);
+        ReflectionTestUtils.setField(strategy, "timelineWriter", new FakeTimelineWriter());
+        ReflectionTestUtils.setField(strategy, "userActivityService", new AllActiveService());
+        ReflectionTestUtils.setField(strategy, "feedConfig", new FeedConfig());
+
+        post = BenchmarkFakes.post(42L);
+    }
+
+    @Benchmark
+    public long dispatchFeed() {
+        strategy.dispatchFeed(post);
+        return inserted;
+    }
+
+    /**
+     * 所有粉丝都视为活跃，分发量等于粉丝数
+     */
+    private static final class AllActiveService extends UserActivityService {
+
+        @Override
+        public List<Long> filterActive(List<Long> userIds) {
+            return userIds;
+        }
+    }
+
+    private static final class FakeTimelineWriter extends TimelineWriter {
+
+        @Override
+        public int appendToTimelines(List<Long> userIds, Long postId, long score) {
+            return userIds.size();
+        }
+    }
+}
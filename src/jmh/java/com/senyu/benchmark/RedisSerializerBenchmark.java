@@ -0,0 +1,77 @@
+package com.senyu.benchmark;
+
+import com.senyu.config.RedisConfig;
+import com.senyu.entity.Post;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内容缓存的值序列化：RedisConfig中的紧凑二进制编码与原JSON编码对比
+ * 两种编码的单条字节数在Setup中输出
+ *
+ * @author senyu
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RedisSerializerBenchmark {
+
+    private RedisSerializer<Object> compactSerializer;
+
+    private RedisSerializer<Object> jsonSerializer;
+
+    private Post post;
+
+    private byte[] compactBytes;
+
+    private byte[] jsonBytes;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        // 与线上同一份配置：值序列化器为紧凑编码，Hash值序列化器为原JSON编码
+        RedisTemplate<String, Object> template = new RedisConfig().redisTemplate(BenchmarkFakes.connectionFactory());
+        compactSerializer = (RedisSerializer<Object>) template.getValueSerializer();
+        jsonSerializer = (RedisSerializer<Object>) template.getHashValueSerializer();
+
+        post = BenchmarkFakes.post(1_000_000_042L);
+        compactBytes = compactSerializer.serialize(post);
+        jsonBytes = jsonSerializer.serialize(post);
+        System.out.printf("%nbytes per post: compact=%d, json=%d%n", compactBytes.length, jsonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeCompact() {
+        return compactSerializer.serialize(post);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() {
+        return jsonSerializer.serialize(post);
+    }
+
+    @Benchmark
+    public Object deserializeCompact() {
+        return compactSerializer.deserialize(compactBytes);
+    }
+
+    @Benchmark
+    public Object deserializeJson() {
+        return jsonSerializer.deserialize(jsonBytes);
+    }
+}
@@ -0,0 +1,46 @@
+package com.senyu.accesslog;
+
+/**
+ * 访问日志环形缓冲区的槽位，启动时预分配并循环复用
+ * sequence等于槽位序号时可被请求线程认领，等于序号+1时表示已写入、可被写出线程读取
+ *
+ * @author senyu
+ */
+final class AccessLogRecord {
+
+    volatile long sequence;
+
+    long timestamp;
+
+    String method;
+
+    String uri;
+
+    String route;
+
+    int status;
+
+    long durationMicros;
+
+    String remoteAddr;
+
+    Object userId;
+
+    String error;
+
+    AccessLogRecord(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * 释放对请求对象的引用
+     */
+    void clear() {
+        method = null;
+        uri = null;
+        route = null;
+        remoteAddr = null;
+        userId = null;
+        error = null;
+    }
+}
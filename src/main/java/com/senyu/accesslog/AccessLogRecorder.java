@@ -0,0 +1,216 @@
+package com.senyu.accesslog;
+
+import com.senyu.config.FeedConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步访问日志
+ * 请求线程只把固定字段写入预分配的环形缓冲区，由后台线程格式化并写出到access日志；
+ * 缓冲区写满时丢弃新记录并计数，请求线程不会因日志阻塞。
+ * 按接口路由采样，慢请求、5xx和异常请求总是记录
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class AccessLogRecorder {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access");
+
+    private static final DateTimeFormatter TIME_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    /**
+     * 缓冲区为空时写出线程的等待时间
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private AccessLogRecord[] ring;
+
+    private int mask;
+
+    /**
+     * 下一个待认领的序号，请求线程通过CAS认领
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * 下一个待写出的序号，仅由写出线程推进
+     */
+    private volatile long head;
+
+    /**
+     * 路由 -> 采样率
+     */
+    private final Map<String, Double> sampleRates = new ConcurrentHashMap<>();
+
+    private Counter droppedCounter;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        int capacity = Integer.highestOneBit(Math.max(2, feedConfig.getAccessLogBufferSize() - 1)) << 1;
+        ring = new AccessLogRecord[capacity];
+        for (int i = 0; i < capacity; i++) {
+            ring[i] = new AccessLogRecord(i);
+        }
+        mask = capacity - 1;
+
+        droppedCounter = Counter.builder("access_log.dropped")
+                .description("缓冲区已满被丢弃的访问日志数")
+                .register(meterRegistry);
+        Gauge.builder("access_log.backlog", this, recorder -> recorder.tail.get() - recorder.head)
+                .description("尚未写出的访问日志数")
+                .register(meterRegistry);
+
+        running = true;
+        writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 是否需要记录该请求，access日志关闭时全部跳过
+     *
+     * @param route          接口路由模板，未匹配到接口时为null
+     * @param status         响应状态码
+     * @param durationMillis 耗时（毫秒）
+     * @param failed         是否抛出异常，包括被全局异常处理器处理的异常
+     */
+    public boolean shouldRecord(String route, int status, long durationMillis, boolean failed) {
+        if (!ACCESS_LOG.isInfoEnabled()) {
+            return false;
+        }
+        if (failed || status >= 500 || durationMillis >= feedConfig.getAccessLogSlowMs()) {
+            return true;
+        }
+        double rate = sampleRates.computeIfAbsent(route == null ? "" : route,
+                key -> feedConfig.getAccessLogSampleRates().getOrDefault(key, feedConfig.getAccessLogSampleRate()));
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * 写入一条访问日志，缓冲区已满时丢弃
+     */
+    public void record(String method, String uri, String route, int status, long durationMicros,
+                       String remoteAddr, Object userId, String error) {
+        AccessLogRecord record;
+        long sequence;
+        while (true) {
+            sequence = tail.get();
+            record = ring[(int) (sequence & mask)];
+            long available = record.sequence;
+            if (available == sequence) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            } else if (available < sequence) {
+                // 该槽位尚未被写出线程释放，缓冲区已满
+                droppedCounter.increment();
+                return;
+            }
+            // 槽位已被其它线程认领，重新读取tail
+        }
+
+        record.timestamp = System.currentTimeMillis();
+        record.method = method;
+        record.uri = uri;
+        record.route = route;
+        record.status = status;
+        record.durationMicros = durationMicros;
+        record.remoteAddr = remoteAddr;
+        record.userId = userId;
+        record.error = error;
+        // 发布：写出线程看到序号变化后读取字段
+        record.sequence = sequence + 1;
+    }
+
+    private void writeLoop() {
+        StringBuilder line = new StringBuilder(256);
+        while (running) {
+            if (drain(line) == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain(line);
+    }
+
+    private int drain(StringBuilder line) {
+        int written = 0;
+        while (true) {
+            long sequence = head;
+            AccessLogRecord record = ring[(int) (sequence & mask)];
+            if (record.sequence != sequence + 1) {
+                return written;
+            }
+            try {
+                write(record, line);
+            } catch (Exception e) {
+                log.warn("写出访问日志失败: {}", e.getMessage());
+            }
+            record.clear();
+            record.sequence = sequence + ring.length;
+            head = sequence + 1;
+            written++;
+        }
+    }
+
+    private void write(AccessLogRecord record, StringBuilder line) {
+        line.setLength(0);
+        line.append("time=").append(TIME_FORMATTER.format(Instant.ofEpochMilli(record.timestamp)))
+                .append(" method=").append(record.method)
+                .append(" uri=").append(record.uri)
+                .append(" route=").append(record.route)
+                .append(" status=").append(record.status)
+                .append(" durationMs=").append(record.durationMicros / 1000).append('.')
+                .append(record.durationMicros % 1000 / 100)
+                .append(" ip=").append(record.remoteAddr)
+                .append(" user=").append(record.userId);
+        if (record.error != null) {
+            line.append(" error=\"").append(record.error).append('"');
+            ACCESS_LOG.warn(line.toString());
+        } else if (record.status >= 500) {
+            ACCESS_LOG.warn(line.toString());
+        } else {
+            ACCESS_LOG.info(line.toString());
+        }
+    }
+
+    /**
+     * 停机时写出剩余日志
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+}
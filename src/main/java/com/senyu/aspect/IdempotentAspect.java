@@ -1,26 +1,42 @@
 package com.senyu.aspect;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.crypto.digest.DigestUtil;
-import cn.hutool.json.JSONUtil;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 import com.senyu.annotation.Idempotent;
+import com.senyu.dto.IdempotentResponse;
 import com.senyu.exception.BusinessException;
+import com.senyu.interceptor.JwtAuthenticationInterceptor;
 import jakarta.annotation.Resource;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.BeanUtils;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 幂等性切面
+ * 幂等key优先使用客户端传入的Idempotency-Key请求头，未传入时对请求参数取摘要；
+ * 首次请求成功后保存响应，有效期内的重复请求直接返回该响应
  *
  * @author senyu
  */
@@ -29,9 +45,31 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class IdempotentAspect {
 
+    /**
+     * 客户端幂等key请求头
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * 客户端幂等key的最大长度，超过时取摘要
+     */
+    private static final int MAX_CLIENT_KEY_LENGTH = 64;
+
+    /**
+     * 首次请求执行中的占位值
+     */
+    private static final String PROCESSING = "PROCESSING";
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
     @Resource
     private RedisTemplate<String, Object> redisTemplate;
 
+    /**
+     * 方法 -> 参数摘要器，首次调用时解析
+     */
+    private final Map<Method, ArgumentsHasher> hashers = new ConcurrentHashMap<>();
+
     @Around("@annotation(idempotent)")
     public Object around(ProceedingJoinPoint joinPoint, Idempotent idempotent) throws Throwable {
         ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
@@ -40,48 +78,131 @@ public class IdempotentAspect {
         }
 
         HttpServletRequest request = attributes.getRequest();
-        String userId = request.getHeader("userId");
-        if (StrUtil.isBlank(userId)) {
-            userId = "anonymous";
+        // 优先使用JWT认证写入的用户ID
+        Object userId = request.getAttribute(JwtAuthenticationInterceptor.USER_ID_ATTRIBUTE);
+        if (userId == null) {
+            userId = StrUtil.blankToDefault(request.getHeader("userId"), "anonymous");
         }
 
         // 生成幂等性key
-        String idempotentKey = generateKey(joinPoint, idempotent.prefix(), userId);
+        String idempotentKey = generateKey(joinPoint, idempotent.prefix(), userId.toString(),
+                request.getHeader(IDEMPOTENCY_KEY_HEADER));
 
         // 尝试设置key，如果key已存在则说明是重复请求
         Boolean success = redisTemplate.opsForValue()
-                .setIfAbsent(idempotentKey, "1", idempotent.expireTime(), TimeUnit.SECONDS);
+                .setIfAbsent(idempotentKey, PROCESSING, idempotent.expireTime(), TimeUnit.SECONDS);
 
         if (Boolean.FALSE.equals(success)) {
+            // 首次请求已完成时返回其响应，仍在执行时拒绝
+            if (redisTemplate.opsForValue().get(idempotentKey) instanceof IdempotentResponse previous) {
+                log.info("重复请求，返回首次请求的响应，key: {}", idempotentKey);
+                return previous.getResponse();
+            }
             log.warn("检测到重复请求，key: {}", idempotentKey);
             throw new BusinessException(idempotent.message());
         }
 
+        Object response;
         try {
             // 执行业务逻辑
-            return joinPoint.proceed();
+            response = joinPoint.proceed();
         } catch (Exception e) {
             // 业务执行失败，删除幂等性key，允许重试
             redisTemplate.delete(idempotentKey);
             throw e;
         }
+
+        try {
+            redisTemplate.opsForValue().set(idempotentKey, new IdempotentResponse(response),
+                    idempotent.expireTime(), TimeUnit.SECONDS);
+        } catch (Exception e) {
+            // 保存失败时保留占位值，重复请求仍会被拒绝
+            log.warn("保存幂等请求响应失败，key: {}", idempotentKey, e);
+        }
+        return response;
     }
 
     /**
      * 生成幂等性key
      */
-    private String generateKey(ProceedingJoinPoint joinPoint, String prefix, String userId) {
+    private String generateKey(ProceedingJoinPoint joinPoint, String prefix, String userId, String clientKey) {
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
         String className = signature.getDeclaringTypeName();
         String methodName = signature.getName();
 
-        // 参数转JSON
-        Object[] args = joinPoint.getArgs();
-        String argsJson = JSONUtil.toJsonStr(args);
+        String digest;
+        if (StrUtil.isNotBlank(clientKey)) {
+            digest = clientKey.length() <= MAX_CLIENT_KEY_LENGTH
+                    ? clientKey
+                    : HASH_FUNCTION.hashString(clientKey, StandardCharsets.UTF_8).toString();
+        } else {
+            digest = hashers.computeIfAbsent(signature.getMethod(), ArgumentsHasher::new)
+                    .hash(joinPoint.getArgs());
+        }
+
+        return prefix + ':' + className + ':' + methodName + ':' + userId + ':' + digest;
+    }
+
+    /**
+     * 方法参数摘要器
+     * 按参数声明类型预先解析取值方式：简单类型直接取值，对象取其全部属性，不序列化整个参数
+     */
+    private static final class ArgumentsHasher {
+
+        private static final Method[] SKIP = new Method[0];
+
+        /**
+         * 每个参数的属性读取方法，null表示直接取参数值，SKIP表示不参与摘要
+         */
+        private final Method[][] getters;
+
+        private ArgumentsHasher(Method method) {
+            Class<?>[] types = method.getParameterTypes();
+            getters = new Method[types.length][];
+            for (int i = 0; i < types.length; i++) {
+                getters[i] = gettersOf(types[i]);
+            }
+        }
+
+        private static Method[] gettersOf(Class<?> type) {
+            if (ServletRequest.class.isAssignableFrom(type) || ServletResponse.class.isAssignableFrom(type)) {
+                return SKIP;
+            }
+            if (BeanUtils.isSimpleValueType(type) || type == Object.class || type.isArray()
+                    || Iterable.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+                return null;
+            }
+            return Arrays.stream(BeanUtils.getPropertyDescriptors(type))
+                    .filter(descriptor -> descriptor.getReadMethod() != null)
+                    .filter(descriptor -> !"class".equals(descriptor.getName()))
+                    .sorted(Comparator.comparing(PropertyDescriptor::getName))
+                    .map(PropertyDescriptor::getReadMethod)
+                    .toArray(Method[]::new);
+        }
 
-        // MD5加密参数，避免key过长
-        String argsMd5 = DigestUtil.md5Hex(argsJson);
+        private String hash(Object[] args) {
+            Hasher hasher = HASH_FUNCTION.newHasher();
+            for (int i = 0; i < args.length; i++) {
+                Method[] argGetters = getters[i];
+                if (argGetters == null || args[i] == null) {
+                    put(hasher, args[i]);
+                    continue;
+                }
+                for (Method getter : argGetters) {
+                    try {
+                        put(hasher, getter.invoke(args[i]));
+                    } catch (ReflectiveOperationException e) {
+                        throw new IllegalStateException("读取参数属性失败：" + getter, e);
+                    }
+                }
+            }
+            return hasher.hash().toString();
+        }
 
-        return String.format("%s:%s:%s:%s:%s", prefix, className, methodName, userId, argsMd5);
+        private static void put(Hasher hasher, Object value) {
+            String text = value instanceof Object[] array ? Arrays.deepToString(array) : Objects.toString(value);
+            // 每个值后追加分隔符，避免相邻值拼接产生歧义
+            hasher.putString(text, StandardCharsets.UTF_8).putByte((byte) 0);
+        }
     }
 }
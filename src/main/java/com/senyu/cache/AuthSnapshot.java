@@ -0,0 +1,27 @@
+package com.senyu.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 认证快照
+ * 认证只需要用户是否启用和Token版本号，不缓存完整的用户实体
+ *
+ * @author senyu
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class AuthSnapshot {
+
+    /**
+     * 是否启用
+     */
+    private final boolean active;
+
+    /**
+     * Token版本号
+     */
+    private final Integer tokenVersion;
+}
@@ -0,0 +1,101 @@
+package com.senyu.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.senyu.config.JwtConfig;
+import com.senyu.entity.User;
+import com.senyu.util.RedisKeyUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 认证快照本地缓存
+ * 每个请求的认证只读取进程内的（是否启用，Token版本号），正常情况下不访问Redis；
+ * 登出等修改Token版本号的操作通过Redis Pub/Sub通知所有实例清除快照，通知丢失时由较短的TTL兜底
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class AuthSnapshotCache implements MessageListener {
+
+    @Resource
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private JwtConfig jwtConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Cache<Long, AuthSnapshot> snapshots;
+
+    @PostConstruct
+    public void init() {
+        snapshots = Caffeine.newBuilder()
+                .maximumSize(jwtConfig.getAuthSnapshotCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(jwtConfig.getAuthSnapshotCacheTtlSeconds()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "auth.snapshot");
+        redisMessageListenerContainer.addMessageListener(this,
+                new ChannelTopic(RedisKeyUtil.getAuthInvalidateChannel()));
+    }
+
+    /**
+     * 获取用户的认证快照，本地未命中时通过loader加载用户，同一用户并发未命中时只加载一次
+     *
+     * @param userId 用户ID
+     * @param loader 用户加载逻辑
+     * @return 认证快照，用户不存在时返回null
+     */
+    public AuthSnapshot get(Long userId, Function<Long, User> loader) {
+        return snapshots.get(userId, id -> {
+            User user = loader.apply(id);
+            if (user == null) {
+                return null;
+            }
+            return new AuthSnapshot(Boolean.TRUE.equals(user.getIsActive()), user.getTokenVersion());
+        });
+    }
+
+    /**
+     * 使用户的认证快照在所有实例失效
+     * 应在用户数据提交、用户缓存清除之后调用，否则其它实例可能重新加载到旧数据
+     */
+    public void invalidate(Long userId) {
+        snapshots.invalidate(userId);
+        try {
+            idRedisTemplate.convertAndSend(RedisKeyUtil.getAuthInvalidateChannel(), userId);
+        } catch (Exception e) {
+            log.warn("发送认证快照失效通知失败，其它实例将在TTL到期后失效，userId={}", userId, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Long userId = Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8));
+            snapshots.invalidate(userId);
+            log.debug("收到认证快照失效通知，userId={}", userId);
+        } catch (NumberFormatException e) {
+            log.warn("认证快照失效通知格式不正确：{}", message);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.senyu.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.senyu.config.FeedConfig;
+import com.senyu.entity.Post;
+import com.senyu.mapper.PostMapper;
+import com.senyu.util.RedisKeyUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 内容多级缓存
+ * 一级为进程内Caffeine缓存，二级为Redis（post:info:{id}），均未命中时批量查询数据库并逐级回填；
+ * 批量读取时每一级只有一次访问：本地批量查找、一次MGET、一次IN查询。
+ * 只用于内容正文，易变的计数由PostCounterCache单独缓存，因此正文可以长期缓存
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class PostCache {
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private SingleFlightCacheLoader cacheLoader;
+
+    private Cache<Long, Post> localCache;
+
+    private Counter localHitCounter;
+
+    private Counter localMissCounter;
+
+    private Counter redisHitCounter;
+
+    private Counter redisMissCounter;
+
+    private Counter dbHitCounter;
+
+    private Counter dbMissCounter;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(feedConfig.getPostLocalCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(feedConfig.getPostLocalCacheTtlSeconds()))
+                .build();
+        localHitCounter = lookupCounter("local", "hit");
+        localMissCounter = lookupCounter("local", "miss");
+        redisHitCounter = lookupCounter("redis", "hit");
+        redisMissCounter = lookupCounter("redis", "miss");
+        dbHitCounter = lookupCounter("db", "hit");
+        dbMissCounter = lookupCounter("db", "miss");
+    }
+
+    private Counter lookupCounter(String tier, String result) {
+        return Counter.builder("post.cache.lookups")
+                .description("内容缓存各级查找次数")
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取单个内容
+     * 本地缓存未命中时经单飞加载器读取Redis，热点内容过期时只有一个请求回源数据库
+     *
+     * @return 内容，不存在时返回null
+     */
+    public Post get(Long postId) {
+        Post post = localCache.getIfPresent(postId);
+        if (post != null) {
+            localHitCounter.increment();
+            return post;
+        }
+        localMissCounter.increment();
+
+        post = cacheLoader.get("post", RedisKeyUtil.getPostInfoKey(postId),
+                Duration.ofSeconds(feedConfig.getPostCacheTtlSeconds()),
+                () -> postMapper.selectById(postId));
+        if (post != null) {
+            localCache.put(postId, post);
+        }
+        return post;
+    }
+
+    /**
+     * 批量获取内容
+     *
+     * @param postIds 内容ID列表
+     * @return 按输入顺序排列的内容，不存在的ID被跳过
+     */
+    public List<Post> getAll(List<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+        LinkedHashSet<Long> distinctIds = new LinkedHashSet<>(postIds);
+
+        // 1. 本地缓存
+        Map<Long, Post> found = new HashMap<>(localCache.getAllPresent(distinctIds));
+        localHitCounter.increment(found.size());
+        List<Long> missed = missing(distinctIds, found);
+        localMissCounter.increment(missed.size());
+
+        // 2. Redis，一次MGET
+        if (!missed.isEmpty()) {
+            Map<Long, Post> fromRedis = multiGet(missed);
+            redisHitCounter.increment(fromRedis.size());
+            localCache.putAll(fromRedis);
+            found.putAll(fromRedis);
+            missed = missing(missed, found);
+            redisMissCounter.increment(missed.size());
+        }
+
+        // 3. 数据库，一次IN查询，并回填两级缓存
+        if (!missed.isEmpty()) {
+            List<Post> fromDb = postMapper.selectBatchIds(missed);
+            dbHitCounter.increment(fromDb.size());
+            dbMissCounter.increment(missed.size() - fromDb.size());
+            if (!fromDb.isEmpty()) {
+                putAll(fromDb);
+                fromDb.forEach(post -> found.put(post.getId(), post));
+            }
+        }
+
+        return postIds.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * 写入两级缓存
+     */
+    public void put(Post post) {
+        putAll(List.of(post));
+    }
+
+    /**
+     * 使缓存失效，其它实例的本地缓存在过期后失效
+     */
+    public void evict(Long postId) {
+        localCache.invalidate(postId);
+        redisTemplate.delete(RedisKeyUtil.getPostInfoKey(postId));
+    }
+
+    private List<Long> missing(Iterable<Long> postIds, Map<Long, Post> found) {
+        List<Long> missed = new ArrayList<>();
+        for (Long postId : postIds) {
+            if (!found.containsKey(postId)) {
+                missed.add(postId);
+            }
+        }
+        return missed;
+    }
+
+    private Map<Long, Post> multiGet(List<Long> postIds) {
+        Map<Long, Post> result = new HashMap<>(postIds.size() * 2);
+        try {
+            List<String> keys = postIds.stream()
+                    .map(RedisKeyUtil::getPostInfoKey)
+                    .toList();
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return result;
+            }
+            for (int i = 0; i < postIds.size(); i++) {
+                if (values.get(i) instanceof Post post) {
+                    result.put(postIds.get(i), post);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("批量读取内容缓存失败，回源数据库: {}", e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 在一个pipeline内回填Redis缓存，同时写入本地缓存
+     */
+    @SuppressWarnings("unchecked")
+    private void putAll(List<Post> posts) {
+        posts.forEach(post -> localCache.put(post.getId(), post));
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        Expiration expiration = Expiration.seconds(feedConfig.getPostCacheTtlSeconds());
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Post post : posts) {
+                    connection.stringCommands().set(
+                            keySerializer.serialize(RedisKeyUtil.getPostInfoKey(post.getId())),
+                            valueSerializer.serialize(post),
+                            expiration,
+                            RedisStringCommands.SetOption.upsert());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("回填内容缓存失败，数量：{}", posts.size(), e);
+        }
+    }
+}
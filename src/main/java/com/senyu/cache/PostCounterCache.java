@@ -0,0 +1,252 @@
+package com.senyu.cache;
+
+import com.senyu.config.FeedConfig;
+import com.senyu.counter.PostCounterDelta;
+import com.senyu.counter.PostCounts;
+import com.senyu.mapper.PostMapper;
+import com.senyu.util.RedisKeyUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内容计数缓存
+ * 计数存放在独立的Hash（post:counter:{id}）中，与内容详情缓存分离：
+ * 计数落库后只对已存在的Hash执行HINCRBY，内容详情缓存不再因点赞失效；
+ * Hash缺失时从数据库批量加载，仅在Hash仍不存在时写入，避免覆盖并发的累加。
+ * <p>
+ * Hash缺失期间落库的增量无处累加，此时递增该内容的落库版本号；读取方查询数据库前记下版本号，
+ * 回填时版本号已变化说明读到的可能是落库前的旧值，放弃回填，下次读取重新加载
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class PostCounterCache {
+
+    private static final byte[] LIKE = bytes("like");
+    private static final byte[] COMMENT = bytes("comment");
+    private static final byte[] SHARE = bytes("share");
+    private static final byte[] VIEW = bytes("view");
+    private static final byte[] ZERO = bytes("0");
+
+    /**
+     * 落库版本号的过期时间（秒），需大于读取方从查询数据库到回填的耗时
+     */
+    private static final byte[] EPOCH_TTL = bytes("60");
+
+    /**
+     * Hash存在时累加；不存在时递增落库版本号，使此前开始的回填失效
+     * KEYS: 计数Hash, 落库版本号；ARGV: 版本号过期秒数, 之后为成对的field和增量
+     */
+    private static final byte[] INCREMENT_IF_EXISTS_SCRIPT = bytes(
+            "if redis.call('exists', KEYS[1]) == 1 then " +
+            "    for i = 2, #ARGV, 2 do " +
+            "        redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 1]) " +
+            "    end " +
+            "    return 1 " +
+            "end " +
+            "redis.call('incr', KEYS[2]) " +
+            "redis.call('expire', KEYS[2], ARGV[1]) " +
+            "return 0");
+
+    /**
+     * Hash不存在且落库版本号与查询数据库前一致时初始化并设置过期时间
+     * KEYS: 计数Hash, 落库版本号；ARGV: like, comment, share, view, 过期秒数, 查询前的版本号
+     */
+    private static final byte[] INIT_IF_ABSENT_SCRIPT = bytes(
+            "if redis.call('exists', KEYS[1]) == 0 and (redis.call('get', KEYS[2]) or '0') == ARGV[6] then " +
+            "    redis.call('hset', KEYS[1], 'like', ARGV[1], 'comment', ARGV[2], 'share', ARGV[3], 'view', ARGV[4]) " +
+            "    redis.call('expire', KEYS[1], ARGV[5]) " +
+            "    return 1 " +
+            "end " +
+            "return 0");
+
+    private static final StringRedisSerializer STRING_SERIALIZER = StringRedisSerializer.UTF_8;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    /**
+     * 批量获取内容计数，一次pipeline HMGET，缺失的一次查询数据库并回填
+     *
+     * @param postIds 内容ID列表
+     * @return 内容ID到计数的映射，内容不存在时不包含该ID
+     */
+    public Map<Long, PostCounts> getAll(List<Long> postIds) {
+        Map<Long, PostCounts> result = new HashMap<>(postIds.size() * 2);
+        if (postIds.isEmpty()) {
+            return result;
+        }
+
+        List<Long> missed = new ArrayList<>();
+        try {
+            List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long postId : postIds) {
+                    connection.hashCommands().hMGet(key(postId), LIKE, COMMENT, SHARE, VIEW);
+                }
+                return null;
+            }, STRING_SERIALIZER);
+            for (int i = 0; i < postIds.size(); i++) {
+                PostCounts counts = parse(postIds.get(i), (List<?>) values.get(i));
+                if (counts != null) {
+                    result.put(postIds.get(i), counts);
+                } else {
+                    missed.add(postIds.get(i));
+                }
+            }
+        } catch (Exception e) {
+            log.warn("批量读取内容计数缓存失败，回源数据库: {}", e.getMessage());
+            missed = new ArrayList<>(postIds);
+        }
+
+        if (!missed.isEmpty()) {
+            // 查询数据库前记下落库版本号，回填时据此判断期间是否有增量落库
+            Map<Long, byte[]> epochs = epochsOf(missed);
+            List<PostCounts> fromDb = postMapper.selectCountsByIds(missed);
+            fromDb.forEach(counts -> result.put(counts.getPostId(), counts));
+            if (epochs != null) {
+                initAll(fromDb, epochs);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将已落库的增量同步到计数Hash，Hash不存在时递增落库版本号，下次读取从数据库加载
+     */
+    public void incrementAll(List<PostCounterDelta> deltas) {
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (PostCounterDelta delta : deltas) {
+                    List<byte[]> keysAndArgs = new ArrayList<>(11);
+                    keysAndArgs.add(key(delta.getPostId()));
+                    keysAndArgs.add(epochKey(delta.getPostId()));
+                    keysAndArgs.add(EPOCH_TTL);
+                    addIfNonZero(keysAndArgs, LIKE, delta.getLikeDelta());
+                    addIfNonZero(keysAndArgs, COMMENT, delta.getCommentDelta());
+                    addIfNonZero(keysAndArgs, SHARE, delta.getShareDelta());
+                    addIfNonZero(keysAndArgs, VIEW, delta.getViewDelta());
+                    if (keysAndArgs.size() > 3) {
+                        connection.scriptingCommands().eval(INCREMENT_IF_EXISTS_SCRIPT, ReturnType.INTEGER, 2,
+                                keysAndArgs.toArray(new byte[0][]));
+                    }
+                }
+                return null;
+            }, STRING_SERIALIZER);
+        } catch (Exception e) {
+            // 同步失败时删除计数Hash，下次读取从数据库重新加载
+            log.warn("同步内容计数缓存失败，删除计数缓存，数量：{}", deltas.size(), e);
+            redisTemplate.delete(deltas.stream()
+                    .map(delta -> RedisKeyUtil.getPostCounterKey(delta.getPostId()))
+                    .toList());
+        }
+    }
+
+    /**
+     * 一次MGET读取内容的落库版本号，不存在时为0
+     *
+     * @return 内容ID到版本号的映射，读取失败时返回null，此时不回填
+     */
+    private Map<Long, byte[]> epochsOf(List<Long> postIds) {
+        try {
+            byte[][] keys = postIds.stream().map(this::epochKey).toArray(byte[][]::new);
+            List<byte[]> values = redisTemplate.execute(
+                    (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(keys));
+            if (values == null) {
+                return null;
+            }
+            Map<Long, byte[]> epochs = new HashMap<>(postIds.size() * 2);
+            for (int i = 0; i < postIds.size(); i++) {
+                byte[] value = values.get(i);
+                epochs.put(postIds.get(i), value == null ? ZERO : value);
+            }
+            return epochs;
+        } catch (Exception e) {
+            log.warn("读取内容计数落库版本号失败，跳过回填: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void initAll(List<PostCounts> countsList, Map<Long, byte[]> epochs) {
+        if (countsList.isEmpty()) {
+            return;
+        }
+        byte[] ttl = bytes(String.valueOf(feedConfig.getPostCounterCacheTtlSeconds()));
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (PostCounts counts : countsList) {
+                    connection.scriptingCommands().eval(INIT_IF_ABSENT_SCRIPT, ReturnType.INTEGER, 2,
+                            key(counts.getPostId()),
+                            epochKey(counts.getPostId()),
+                            bytes(String.valueOf(counts.getLikeCount())),
+                            bytes(String.valueOf(counts.getCommentCount())),
+                            bytes(String.valueOf(counts.getShareCount())),
+                            bytes(String.valueOf(counts.getViewCount())),
+                            ttl,
+                            epochs.getOrDefault(counts.getPostId(), ZERO));
+                }
+                return null;
+            }, STRING_SERIALIZER);
+        } catch (Exception e) {
+            log.warn("回填内容计数缓存失败，数量：{}", countsList.size(), e);
+        }
+    }
+
+    private PostCounts parse(Long postId, List<?> fields) {
+        if (fields == null || fields.size() < 4 || fields.get(0) == null) {
+            return null;
+        }
+        PostCounts counts = new PostCounts();
+        counts.setPostId(postId);
+        counts.setLikeCount(toLong(fields.get(0)));
+        counts.setCommentCount(toLong(fields.get(1)));
+        counts.setShareCount(toLong(fields.get(2)));
+        counts.setViewCount(toLong(fields.get(3)));
+        return counts;
+    }
+
+    private static void addIfNonZero(List<byte[]> keysAndArgs, byte[] field, long delta) {
+        if (delta != 0) {
+            keysAndArgs.add(field);
+            keysAndArgs.add(bytes(String.valueOf(delta)));
+        }
+    }
+
+    private static long toLong(Object value) {
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] key(Long postId) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer())
+                .serialize(RedisKeyUtil.getPostCounterKey(postId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] epochKey(Long postId) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer())
+                .serialize(RedisKeyUtil.getPostCounterEpochKey(postId));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
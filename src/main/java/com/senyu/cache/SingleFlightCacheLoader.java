@@ -0,0 +1,301 @@
+package com.senyu.cache;
+
+import com.senyu.config.FeedConfig;
+import com.senyu.util.RedisLockUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 防击穿缓存加载器
+ * <ul>
+ *     <li>进程内单飞：同一key同时只有一个线程回源，其余线程等待同一个结果</li>
+ *     <li>跨实例租约：回源前通过RedisLockUtil获取短租约，未获取到的实例短暂等待其它实例回填</li>
+ *     <li>XFetch提前刷新：按回源耗时的滑动平均和剩余TTL概率性地提前异步刷新，热点key不会集中过期</li>
+ * </ul>
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class SingleFlightCacheLoader {
+
+    private static final String LEASE_PREFIX = "cache:load:";
+
+    /**
+     * 未获取到租约时等待其它实例回填的轮询次数与间隔
+     */
+    private static final int LEASE_WAIT_ROUNDS = 5;
+
+    private static final long LEASE_WAIT_MILLIS = 20L;
+
+    /**
+     * 回源耗时滑动平均的权重
+     */
+    private static final double DELTA_EWMA_ALPHA = 0.2;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private RedisLockUtil redisLockUtil;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource(name = "commonAsyncExecutor")
+    private Executor commonAsyncExecutor;
+
+    /**
+     * 正在回源的key
+     */
+    private final Map<String, CompletableFuture<Object>> inflight = new ConcurrentHashMap<>();
+
+    /**
+     * 每类加载器的回源耗时滑动平均（毫秒），即XFetch中的delta
+     */
+    private final Map<String, Double> loadDeltas = new ConcurrentHashMap<>();
+
+    /**
+     * 每类加载器的指标，首次使用时注册，之后不再查找注册表
+     */
+    private final Map<String, LoaderMeters> meters = new ConcurrentHashMap<>();
+
+    /**
+     * 读取缓存，未命中时单飞回源并写入缓存
+     *
+     * @param name   加载器名称，用于指标和回源耗时统计
+     * @param key    缓存key
+     * @param ttl    缓存时长
+     * @param loader 回源逻辑，返回null时不缓存
+     * @return 缓存值或回源结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name, String key, Duration ttl, Supplier<T> loader) {
+        // 1. 一次往返读取值和剩余TTL
+        List<Object> results;
+        try {
+            RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+            byte[] rawKey = keySerializer.serialize(key);
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.stringCommands().get(rawKey);
+                connection.keyCommands().pTtl(rawKey);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("读取缓存失败，直接回源，key：{}，原因：{}", key, e.getMessage());
+            return loader.get();
+        }
+
+        Object cached = results.get(0);
+        if (cached != null) {
+            Long remainingMillis = (Long) results.get(1);
+            if (shouldRefreshEarly(name, remainingMillis)) {
+                refreshAsync(name, key, ttl, loader);
+            }
+            return (T) cached;
+        }
+
+        // 2. 未命中，单飞回源
+        return coalesce(name, key, () -> loadWithLease(name, key, ttl, loader));
+    }
+
+    /**
+     * 进程内单飞：同一key同时只执行一次task，并发调用者共享结果
+     *
+     * @param name 加载器名称
+     * @param key  合并的key
+     * @param task 回源逻辑
+     * @return 回源结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T coalesce(String name, String key, Supplier<T> task) {
+        CompletableFuture<Object> created = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inflight.putIfAbsent(key, created);
+        if (existing != null) {
+            metersOf(name).coalesced.increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            T value = task.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inflight.remove(key, created);
+            recordLoad(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 获取跨实例租约后回源；其它实例正在回源时先等待其回填，超时后自行回源
+     */
+    private <T> T loadWithLease(String name, String key, Duration ttl, Supplier<T> loader) {
+        String leaseKey = LEASE_PREFIX + key;
+        String leaseId = redisLockUtil.tryLock(leaseKey, feedConfig.getCacheLoadLeaseSeconds());
+        if (leaseId == null) {
+            metersOf(name).leaseWait.increment();
+            T filled = waitForFill(key);
+            if (filled != null) {
+                return filled;
+            }
+        }
+        try {
+            metersOf(name).loaded.increment();
+            T value = loader.get();
+            if (value != null) {
+                redisTemplate.opsForValue().set(key, value, ttl);
+            }
+            return value;
+        } finally {
+            if (leaseId != null) {
+                redisLockUtil.unlock(leaseKey, leaseId);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T waitForFill(String key) {
+        for (int i = 0; i < LEASE_WAIT_ROUNDS; i++) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(LEASE_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                return (T) value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * XFetch：当 -delta × beta × ln(rand) ≥ 剩余TTL 时提前刷新，越接近过期、回源越慢，提前刷新的概率越高
+     */
+    private boolean shouldRefreshEarly(String name, Long remainingMillis) {
+        if (remainingMillis == null || remainingMillis < 0) {
+            // 无过期时间或key已不存在
+            return false;
+        }
+        double delta = loadDeltas.getOrDefault(name, 0d);
+        if (delta <= 0) {
+            return false;
+        }
+        double gap = -delta * feedConfig.getCacheEarlyRefreshBeta() * Math.log(ThreadLocalRandom.current().nextDouble());
+        return gap >= remainingMillis;
+    }
+
+    private <T> void refreshAsync(String name, String key, Duration ttl, Supplier<T> loader) {
+        if (inflight.containsKey(key)) {
+            return;
+        }
+        metersOf(name).earlyRefresh.increment();
+        try {
+            commonAsyncExecutor.execute(() -> {
+                try {
+                    coalesce(name, key, () -> {
+                        T value = loader.get();
+                        if (value != null) {
+                            redisTemplate.opsForValue().set(key, value, ttl);
+                        }
+                        return value;
+                    });
+                } catch (Exception e) {
+                    log.warn("提前刷新缓存失败，key：{}", key, e);
+                }
+            });
+        } catch (Exception e) {
+            log.debug("提前刷新任务提交失败，key：{}", key);
+        }
+    }
+
+    private void recordLoad(String name, long nanos) {
+        double millis = nanos / 1_000_000d;
+        loadDeltas.merge(name, millis, (old, latest) -> old + DELTA_EWMA_ALPHA * (latest - old));
+        metersOf(name).loadTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private LoaderMeters metersOf(String name) {
+        LoaderMeters loaderMeters = meters.get(name);
+        return loaderMeters != null ? loaderMeters : meters.computeIfAbsent(name, this::registerMeters);
+    }
+
+    private LoaderMeters registerMeters(String name) {
+        Timer loadTimer = Timer.builder("cache.load.duration")
+                .description("缓存回源耗时")
+                .tag("name", name)
+                .register(meterRegistry);
+        return new LoaderMeters(loadTimer,
+                counter(name, "loaded"),
+                counter(name, "coalesced"),
+                counter(name, "lease_wait"),
+                counter(name, "early_refresh"));
+    }
+
+    private Counter counter(String name, String result) {
+        return Counter.builder("cache.load")
+                .description("缓存回源次数：loaded-实际回源 coalesced-合并到进行中的回源 lease_wait-等待其它实例回填 early_refresh-提前刷新")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单类加载器的指标
+     */
+    private static final class LoaderMeters {
+
+        private final Timer loadTimer;
+
+        private final Counter loaded;
+
+        private final Counter coalesced;
+
+        private final Counter leaseWait;
+
+        private final Counter earlyRefresh;
+
+        private LoaderMeters(Timer loadTimer, Counter loaded, Counter coalesced, Counter leaseWait,
+                             Counter earlyRefresh) {
+            this.loadTimer = loadTimer;
+            this.loaded = loaded;
+            this.coalesced = coalesced;
+            this.leaseWait = leaseWait;
+            this.earlyRefresh = earlyRefresh;
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        return e.getCause() instanceof RuntimeException cause ? cause : e;
+    }
+}
@@ -42,9 +42,9 @@ public class PageResult<T> {
     private Boolean hasNext;
 
     /**
-     * 下一页游标（用于Feed流滚动加载）
+     * 下一页游标（不透明字符串，用于Feed流滚动加载）
      */
-    private Long nextCursor;
+    private String nextCursor;
 
     public PageResult(List<T> list, Long total, Integer page, Integer pageSize) {
         this.list = list;
@@ -54,7 +54,7 @@ public class PageResult<T> {
         this.hasNext = (long) page * pageSize < total;
     }
 
-    public PageResult(List<T> list, Long nextCursor, Boolean hasNext) {
+    public PageResult(List<T> list, String nextCursor, Boolean hasNext) {
         this.list = list;
         this.nextCursor = nextCursor;
         this.hasNext = hasNext;
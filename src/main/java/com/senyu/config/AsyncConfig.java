@@ -22,16 +22,17 @@ public class AsyncConfig implements AsyncConfigurer {
 
     /**
      * Feed分发异步线程池
+     * 队列满时直接拒绝，由FeedDispatchService统计并在调用线程执行，形成背压
      */
     @Bean(name = "feedDispatchExecutor")
-    public Executor feedDispatchExecutor() {
+    public ThreadPoolTaskExecutor feedDispatchExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(10);
         executor.setMaxPoolSize(50);
         executor.setQueueCapacity(1000);
         executor.setKeepAliveSeconds(60);
         executor.setThreadNamePrefix("feed-dispatch-");
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(60);
         executor.initialize();
@@ -39,6 +40,29 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * Feed扇出分片线程池
+     * 各分片的收件箱批量插入和Redis pipeline写入在此并行执行，线程数即全局并发分片上限
+     */
+    @Bean(name = "feedFanoutExecutor")
+    public ThreadPoolTaskExecutor feedFanoutExecutor(FeedConfig feedConfig) {
+        int threads = feedConfig.getFanoutConcurrentShards() * 4;
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads * 4);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("feed-fanout-");
+        // 队列满或已关闭时直接拒绝，由PushFeedStrategy在分发线程执行分片；
+        // CallerRunsPolicy在关闭后会静默丢弃任务，分片的future永远不会完成
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        log.info("Feed扇出分片线程池初始化完成，线程数：{}", threads);
+        return executor;
+    }
+
     /**
      * 通用异步线程池
      */
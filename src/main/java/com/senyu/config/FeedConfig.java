@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Feed流配置
  *
@@ -29,6 +32,11 @@ public class FeedConfig {
      */
     private Long cacheTtl = 86400L;
 
+    /**
+     * 空结果缓存时长（秒），没有内容的发件箱、话题时间线等写入空标记，期间不再回源数据库
+     */
+    private Long emptyCacheTtlSeconds = 60L;
+
     /**
      * Feed流最大长度
      */
@@ -38,4 +46,219 @@ public class FeedConfig {
      * 单次拉取Feed数量
      */
     private Integer pageSize = 20;
+
+    /**
+     * 扇出写Redis时单个pipeline包含的粉丝数
+     */
+    private Integer fanoutBatchSize = 500;
+
+    /**
+     * 推模式逐页读取粉丝的页大小，也是分片并行扇出时每个分片包含的粉丝数
+     */
+    private Integer fanoutShardSize = 1000;
+
+    /**
+     * 单条内容同时执行的扇出分片数
+     */
+    private Integer fanoutConcurrentShards = 4;
+
+    /**
+     * 活跃粉丝判定窗口（天），推模式只写入该时间内访问过的粉丝
+     */
+    private Integer activeDays = 7;
+
+    /**
+     * 同一用户两次上报活跃时间的最小间隔（秒）
+     */
+    private Long activityTouchIntervalSeconds = 300L;
+
+    /**
+     * 分发事件中继每轮处理的事件数
+     */
+    private Integer relayBatchSize = 200;
+
+    /**
+     * 分发事件中继轮询间隔（毫秒）
+     */
+    private Long relayIntervalMs = 1000L;
+
+    /**
+     * 分发事件中继单次调度最多处理的批数，剩余积压留给下一次调度，避免长期占用调度线程
+     */
+    private Integer relayMaxBatchesPerRun = 10;
+
+    /**
+     * 新事件留给发布后快速路径处理的时间（秒），超时后由中继接管
+     */
+    private Long relayGraceSeconds = 30L;
+
+    /**
+     * 事件被认领后的租约时长（秒），租约过期未完成的事件会被重新分发
+     */
+    private Long relayLeaseSeconds = 300L;
+
+    /**
+     * 分发事件最大重试次数
+     */
+    private Integer relayMaxRetries = 10;
+
+    /**
+     * 分发事件重试的初始延迟（秒），每次重试翻倍
+     */
+    private Long relayRetryDelaySeconds = 10L;
+
+    /**
+     * 已完成的分发事件保留天数，超过后由定时任务删除
+     */
+    private Integer relayDoneRetentionDays = 7;
+
+    /**
+     * 内容本地缓存（一级缓存）最大条数
+     */
+    private Long postLocalCacheSize = 10000L;
+
+    /**
+     * 内容本地缓存时长（秒），过期后从Redis重新加载，控制多实例间计数的延迟
+     */
+    private Long postLocalCacheTtlSeconds = 30L;
+
+    /**
+     * 内容Redis缓存（二级缓存）时长（秒），计数单独缓存，正文可长期缓存
+     */
+    private Long postCacheTtlSeconds = 86400L;
+
+    /**
+     * 内容计数缓冲落库间隔（毫秒）
+     */
+    private Long counterFlushIntervalMs = 1000L;
+
+    /**
+     * 内容计数落库时单条批量UPDATE包含的内容数
+     */
+    private Integer counterFlushBatchSize = 500;
+
+    /**
+     * 内容计数Hash缓存时长（秒）
+     */
+    private Long postCounterCacheTtlSeconds = 3600L;
+
+    /**
+     * 缓存回源的跨实例租约时长（秒），持有租约的实例回源，其它实例等待回填
+     */
+    private Long cacheLoadLeaseSeconds = 5L;
+
+    /**
+     * XFetch提前刷新系数，越大越早刷新，0表示关闭提前刷新
+     */
+    private Double cacheEarlyRefreshBeta = 1.0;
+
+    /**
+     * 限流本地预取的最大令牌数，实际每次预取为限流容量的1/10，且不超过该值
+     */
+    private Integer rateLimitLeaseMaxPermits = 20;
+
+    /**
+     * 限流本地预取令牌的有效期（毫秒），到期未用完的令牌作废，限制各实例间的偏差
+     */
+    private Long rateLimitLeaseTtlMs = 1000L;
+
+    /**
+     * 本地限流桶的最大数量，按限流key淘汰最久未访问的桶
+     */
+    private Long rateLimitLocalBuckets = 100000L;
+
+    /**
+     * 访问日志环形缓冲区大小（向上取整为2的幂），写满时丢弃新记录
+     */
+    private Integer accessLogBufferSize = 8192;
+
+    /**
+     * 访问日志默认采样率（0~1），未在accessLogSampleRates中配置的接口使用该值
+     */
+    private Double accessLogSampleRate = 1.0;
+
+    /**
+     * 慢请求阈值（毫秒），慢请求和异常请求（含已被全局异常处理器处理的）总是记录
+     */
+    private Long accessLogSlowMs = 1000L;
+
+    /**
+     * 按接口配置的访问日志采样率，key为接口路由模板（不含context-path），如 /feed/timeline
+     */
+    private Map<String, Double> accessLogSampleRates = new HashMap<>();
+
+    /**
+     * 热度半衰期（分钟），互动得分每经过一个半衰期权重减半
+     */
+    private Long hotHalfLifeMinutes = 360L;
+
+    /**
+     * 热门排行保留的内容数
+     */
+    private Integer hotMaxSize = 1000;
+
+    /**
+     * 热门排行重设衰减基准并裁剪的间隔（毫秒）
+     */
+    private Long hotRebaseIntervalMs = 60000L;
+
+    /**
+     * 热门排行为空时从数据库重建，只扫描最近多少天发布的内容
+     */
+    private Integer hotRebuildDays = 7;
+
+    /**
+     * 热门排行从数据库重建时最多扫描的内容数
+     */
+    private Integer hotRebuildScanLimit = 5000;
+
+    /**
+     * 话题1小时热榜的热度半衰期（分钟）
+     */
+    private Long topicTrendingHourHalfLifeMinutes = 30L;
+
+    /**
+     * 话题24小时热榜的热度半衰期（分钟）
+     */
+    private Long topicTrendingDayHalfLifeMinutes = 360L;
+
+    /**
+     * 话题热榜保留的话题数
+     */
+    private Integer topicTrendingMaxSize = 10000;
+
+    /**
+     * 话题热榜扣除过期分钟桶、重设衰减基准的间隔（毫秒）
+     */
+    private Long topicTrendingIntervalMs = 10000L;
+
+    /**
+     * 推荐结果每个用户缓存的内容数
+     */
+    private Integer recommendCacheSize = 200;
+
+    /**
+     * 推荐结果缓存时长（秒），过期后下次请求首页时重新生成
+     */
+    private Long recommendCacheTtlSeconds = 300L;
+
+    /**
+     * 推荐每个召回来源最多返回的候选内容数
+     */
+    private Integer recommendCandidatesPerSource = 200;
+
+    /**
+     * 已读过滤器每个周期预计记录的内容数，超出后误判率上升
+     */
+    private Integer seenFilterExpectedPosts = 2000;
+
+    /**
+     * 已读过滤器的目标误判率
+     */
+    private Double seenFilterFpp = 0.01;
+
+    /**
+     * 已读过滤器的轮换周期（小时），同时检查当前和上一周期，已读记录保留一到两个周期
+     */
+    private Long seenFilterRotateHours = 24L;
 }
@@ -45,4 +45,24 @@ public class JwtConfig {
      * Token前缀
      */
     private String prefix = "Bearer ";
+
+    /**
+     * 验签结果缓存的最大条数
+     */
+    private Long verifiedTokenCacheSize = 10000L;
+
+    /**
+     * 验签结果缓存时长（秒），Token过期后即使仍在缓存中也视为过期
+     */
+    private Long verifiedTokenCacheTtlSeconds = 300L;
+
+    /**
+     * 认证快照本地缓存的最大条数
+     */
+    private Long authSnapshotCacheSize = 100000L;
+
+    /**
+     * 认证快照本地缓存时长（秒），失效通知丢失时最多延迟该时长生效
+     */
+    private Long authSnapshotCacheTtlSeconds = 30L;
 }
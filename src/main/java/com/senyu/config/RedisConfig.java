@@ -5,10 +5,13 @@ import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.senyu.serializer.CompactRedisSerializer;
+import com.senyu.serializer.LongRedisSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -36,6 +39,9 @@ public class RedisConfig {
 
         serializer.setObjectMapper(mapper);
 
+        // 内容、用户等实体使用紧凑二进制编码，其它类型仍使用JSON
+        CompactRedisSerializer valueSerializer = new CompactRedisSerializer(serializer);
+
         // 使用StringRedisSerializer来序列化和反序列化redis的key值
         StringRedisSerializer stringSerializer = new StringRedisSerializer();
 
@@ -43,12 +49,41 @@ public class RedisConfig {
         template.setKeySerializer(stringSerializer);
         // hash的key也采用String的序列化方式
         template.setHashKeySerializer(stringSerializer);
-        // value序列化方式采用jackson
-        template.setValueSerializer(serializer);
+        // value序列化方式采用紧凑二进制 + jackson
+        template.setValueSerializer(valueSerializer);
         // hash的value序列化方式采用jackson
         template.setHashValueSerializer(serializer);
 
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * ID结构专用模板
+     * 时间线、发件箱、活跃度索引、关注集合等只存ID的结构，成员按十进制直接读写为Long
+     */
+    @Bean
+    public RedisTemplate<String, Long> idRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Long> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        StringRedisSerializer stringSerializer = new StringRedisSerializer();
+        template.setKeySerializer(stringSerializer);
+        template.setHashKeySerializer(stringSerializer);
+        template.setValueSerializer(LongRedisSerializer.INSTANCE);
+        template.setHashValueSerializer(LongRedisSerializer.INSTANCE);
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * Redis Pub/Sub监听容器，用于接收跨实例的本地缓存失效通知
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
@@ -82,7 +82,7 @@ public class AuthController {
     @Operation(summary = "获取当前用户信息", description = "获取当前登录用户的详细信息")
     public Result<UserVO> getCurrentUser(HttpServletRequest request) {
         Long userId = (Long) request.getAttribute(JwtAuthenticationInterceptor.USER_ID_ATTRIBUTE);
-        log.info("获取当前用户信息: userId={}", userId);
+        log.debug("获取当前用户信息: userId={}", userId);
         UserVO user = userService.convertToVO(userService.getUserById(userId));
         return Result.success(user);
     }
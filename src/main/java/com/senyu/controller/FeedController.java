@@ -3,17 +3,23 @@ package com.senyu.controller;
 import com.senyu.annotation.RateLimit;
 import com.senyu.common.PageResult;
 import com.senyu.common.Result;
+import com.senyu.dto.TopicTrendVO;
 import com.senyu.entity.Post;
 import com.senyu.service.FeedService;
+import com.senyu.topic.TopicTrendTracker;
+import com.senyu.topic.TrendWindow;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 
 /**
  * Feed流接口
@@ -30,31 +36,60 @@ public class FeedController {
     @Resource
     private FeedService feedService;
 
+    @Resource
+    private TopicTrendTracker topicTrendTracker;
+
     @Operation(summary = "获取关注Feed流", description = "获取用户关注的Feed时间线，支持滚动加载")
     @GetMapping("/timeline")
     @RateLimit(time = 60, count = 100, limitType = RateLimit.LimitType.USER)
     public Result<PageResult<Post>> getTimeline(
             @Parameter(description = "用户ID", required = true)
             @RequestHeader("userId") @NotNull Long userId,
-            @Parameter(description = "游标ID，用于分页，首次请求不传")
-            @RequestParam(required = false) Long maxId,
+            @Parameter(description = "游标，取上一页返回的nextCursor，首次请求不传")
+            @RequestParam(required = false) String cursor,
             @Parameter(description = "每页大小，默认20")
             @RequestParam(required = false, defaultValue = "20") Integer pageSize) {
-        PageResult<Post> result = feedService.getUserFeed(userId, maxId, pageSize);
+        PageResult<Post> result = feedService.getUserFeed(userId, cursor, pageSize);
         return Result.success(result);
     }
 
-    @Operation(summary = "获取推荐Feed流", description = "获取基于热门内容的推荐Feed")
+    @Operation(summary = "获取推荐Feed流", description = "基于热门内容、兴趣话题和二度关注的个性化推荐，支持滚动加载")
     @GetMapping("/recommend")
     @RateLimit(time = 60, count = 100, limitType = RateLimit.LimitType.USER)
     public Result<PageResult<Post>> getRecommend(
             @Parameter(description = "用户ID", required = true)
             @RequestHeader("userId") @NotNull Long userId,
-            @Parameter(description = "页码，默认1")
-            @RequestParam(required = false, defaultValue = "1") Integer page,
+            @Parameter(description = "游标，取上一页返回的nextCursor，首次请求不传")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小，默认20")
+            @RequestParam(required = false, defaultValue = "20") Integer pageSize) {
+        PageResult<Post> result = feedService.getRecommendFeed(userId, cursor, pageSize);
+        return Result.success(result);
+    }
+
+    @Operation(summary = "获取热门话题", description = "获取最近1小时或24小时内发布与互动热度最高的话题")
+    @GetMapping("/topics/trending")
+    @RateLimit(time = 60, count = 100, limitType = RateLimit.LimitType.USER)
+    public Result<List<TopicTrendVO>> getTrendingTopics(
+            @Parameter(description = "时间窗口：1h或24h，默认1h")
+            @RequestParam(required = false, defaultValue = "1h") String window,
+            @Parameter(description = "数量，默认10，最多100")
+            @RequestParam(required = false, defaultValue = "10") Integer limit) {
+        List<TopicTrendVO> result = topicTrendTracker.trending(TrendWindow.of(window), limit);
+        return Result.success(result);
+    }
+
+    @Operation(summary = "获取话题Feed流", description = "获取话题下的最新内容，支持滚动加载")
+    @GetMapping("/topics/timeline")
+    @RateLimit(time = 60, count = 100, limitType = RateLimit.LimitType.USER)
+    public Result<PageResult<Post>> getTopicTimeline(
+            @Parameter(description = "话题", required = true)
+            @RequestParam @NotBlank String topic,
+            @Parameter(description = "游标，取上一页返回的nextCursor，首次请求不传")
+            @RequestParam(required = false) String cursor,
             @Parameter(description = "每页大小，默认20")
             @RequestParam(required = false, defaultValue = "20") Integer pageSize) {
-        PageResult<Post> result = feedService.getRecommendFeed(userId, page, pageSize);
+        PageResult<Post> result = feedService.getTopicFeed(topic, cursor, pageSize);
         return Result.success(result);
     }
 
@@ -5,11 +5,13 @@ import com.senyu.annotation.RateLimit;
 import com.senyu.common.Result;
 import com.senyu.dto.PostPublishDTO;
 import com.senyu.entity.Post;
+import com.senyu.interceptor.JwtAuthenticationInterceptor;
 import com.senyu.service.PostService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
@@ -63,8 +65,10 @@ public class PostController {
     @Idempotent(prefix = "post:like", expireTime = 60, message = "点赞操作过于频繁")
     public Result<Void> likePost(
             @Parameter(description = "内容ID", required = true)
-            @PathVariable @NotNull Long postId) {
-        postService.likePost(postId);
+            @PathVariable @NotNull Long postId,
+            HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute(JwtAuthenticationInterceptor.USER_ID_ATTRIBUTE);
+        postService.likePost(userId, postId);
         return Result.success("点赞成功", null);
     }
 }
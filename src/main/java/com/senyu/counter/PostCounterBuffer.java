@@ -0,0 +1,275 @@
+package com.senyu.counter;
+
+import com.google.common.collect.Lists;
+import com.senyu.cache.PostCounterCache;
+import com.senyu.config.FeedConfig;
+import com.senyu.feed.HotPostRanker;
+import com.senyu.mapper.PostMapper;
+import com.senyu.topic.TopicTrendTracker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内容计数写缓冲
+ * 浏览、点赞等计数先累加到内存中每个内容的LongAdder，由定时任务合并为批量UPDATE写入数据库，
+ * 热点内容不再每次请求都争抢同一行的行锁；落库后同步到计数Hash，读取时再叠加尚未落库的增量，计数对用户实时可见；
+ * 同时把增量计入热门排行和话题热榜。
+ * <p>
+ * 持久性：增量在落库前只存在于进程内存中。正常停机时{@link #shutdown()}落库剩余增量；
+ * 进程崩溃或被强制杀死时，最多丢失一个落库间隔（counter-flush-interval-ms）内的计数。
+ * 点赞、浏览等计数允许这种程度的丢失，需要强一致的计数不应使用该缓冲
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class PostCounterBuffer {
+
+    /**
+     * 连续多少轮没有增量后移出缓冲区
+     */
+    private static final int IDLE_FLUSHES_BEFORE_REMOVE = 2;
+
+    private static final PostCounterType[] TYPES = PostCounterType.values();
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private PostCounterCache postCounterCache;
+
+    @Resource
+    private HotPostRanker hotPostRanker;
+
+    @Resource
+    private TopicTrendTracker topicTrendTracker;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Long, PendingCounters> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 上一轮移出缓冲区的计数，移出前取到引用的并发累加在下一轮一并落库
+     */
+    private List<PendingCounters> retired = new ArrayList<>();
+
+    private Counter flushedCounter;
+
+    private Counter flushFailedCounter;
+
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void init() {
+        flushedCounter = Counter.builder("post.counter.flushed")
+                .description("落库的内容计数行数")
+                .tag("result", "success")
+                .register(meterRegistry);
+        flushFailedCounter = Counter.builder("post.counter.flushed")
+                .description("落库失败、退回缓冲区的内容计数行数")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("post.counter.flush.duration")
+                .description("单轮计数落库耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("post.counter.pending", pending, Map::size)
+                .description("缓冲区中的内容数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 计数加一
+     */
+    public void increment(Long postId, PostCounterType type) {
+        add(postId, type, 1);
+    }
+
+    /**
+     * 累加计数
+     */
+    public void add(Long postId, PostCounterType type, long delta) {
+        PendingCounters counters = pending.get(postId);
+        if (counters == null) {
+            counters = pending.computeIfAbsent(postId, PendingCounters::new);
+        }
+        counters.adders[type.ordinal()].add(delta);
+    }
+
+    /**
+     * 查看内容尚未落库的增量，不清零
+     *
+     * @return 增量，没有增量时返回null
+     */
+    public PostCounterDelta peek(Long postId) {
+        PendingCounters counters = pending.get(postId);
+        if (counters == null) {
+            return null;
+        }
+        PostCounterDelta delta = new PostCounterDelta();
+        delta.setPostId(postId);
+        delta.setLikeDelta(counters.sum(PostCounterType.LIKE));
+        delta.setCommentDelta(counters.sum(PostCounterType.COMMENT));
+        delta.setShareDelta(counters.sum(PostCounterType.SHARE));
+        delta.setViewDelta(counters.sum(PostCounterType.VIEW));
+        return delta.isEmpty() ? null : delta;
+    }
+
+    /**
+     * 将缓冲区中的增量批量写入数据库
+     */
+    @Scheduled(fixedDelayString = "${feed.counter-flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<Long, PostCounterDelta> deltas = drain();
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        // 按内容ID排序，多实例同时落库时加锁顺序一致
+        List<PostCounterDelta> sorted = new ArrayList<>(deltas.values());
+        sorted.sort(Comparator.comparing(PostCounterDelta::getPostId));
+        for (List<PostCounterDelta> batch : Lists.partition(sorted, feedConfig.getCounterFlushBatchSize())) {
+            try {
+                postMapper.batchIncreaseCounters(batch);
+                flushedCounter.increment(batch.size());
+                // 落库后同步到计数Hash，内容详情缓存保持不变
+                postCounterCache.incrementAll(batch);
+            } catch (Exception e) {
+                flushFailedCounter.increment(batch.size());
+                log.error("内容计数落库失败，退回缓冲区等待下一轮，数量：{}", batch.size(), e);
+                batch.forEach(this::restore);
+                continue;
+            }
+            hotPostRanker.recordAll(batch);
+            topicTrendTracker.recordAll(batch);
+        }
+        sample.stop(flushTimer);
+        log.debug("内容计数落库完成，共{}个内容", sorted.size());
+    }
+
+    /**
+     * 停机前落库剩余增量，仍未落库的增量会随进程退出丢失，记录日志便于核对
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        // 最后一轮移出的计数也需要落库
+        flush();
+        long lost = pending.values().stream()
+                .filter(counters -> !counters.isEmpty())
+                .count();
+        if (lost > 0) {
+            log.error("停机前计数落库失败，{}个内容的计数增量丢失", lost);
+        }
+    }
+
+    /**
+     * 取出并清零全部增量，按内容ID合并
+     */
+    private Map<Long, PostCounterDelta> drain() {
+        Map<Long, PostCounterDelta> deltas = new TreeMap<>();
+        for (PendingCounters counters : retired) {
+            merge(deltas, counters.drain());
+        }
+        retired = new ArrayList<>();
+
+        for (PendingCounters counters : pending.values()) {
+            PostCounterDelta delta = counters.drain();
+            if (delta.isEmpty()) {
+                if (++counters.idleFlushes >= IDLE_FLUSHES_BEFORE_REMOVE && pending.remove(counters.postId, counters)) {
+                    retired.add(counters);
+                }
+                continue;
+            }
+            counters.idleFlushes = 0;
+            merge(deltas, delta);
+        }
+        return deltas;
+    }
+
+    private void merge(Map<Long, PostCounterDelta> deltas, PostCounterDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        PostCounterDelta existing = deltas.putIfAbsent(delta.getPostId(), delta);
+        if (existing != null) {
+            existing.setLikeDelta(existing.getLikeDelta() + delta.getLikeDelta());
+            existing.setCommentDelta(existing.getCommentDelta() + delta.getCommentDelta());
+            existing.setShareDelta(existing.getShareDelta() + delta.getShareDelta());
+            existing.setViewDelta(existing.getViewDelta() + delta.getViewDelta());
+        }
+    }
+
+    private void restore(PostCounterDelta delta) {
+        add(delta.getPostId(), PostCounterType.LIKE, delta.getLikeDelta());
+        add(delta.getPostId(), PostCounterType.COMMENT, delta.getCommentDelta());
+        add(delta.getPostId(), PostCounterType.SHARE, delta.getShareDelta());
+        add(delta.getPostId(), PostCounterType.VIEW, delta.getViewDelta());
+    }
+
+    /**
+     * 单个内容的各项计数
+     */
+    private static final class PendingCounters {
+
+        private final Long postId;
+
+        private final LongAdder[] adders = new LongAdder[TYPES.length];
+
+        /**
+         * 连续没有增量的轮数，仅由落库线程读写
+         */
+        private int idleFlushes;
+
+        private PendingCounters(Long postId) {
+            this.postId = postId;
+            for (int i = 0; i < adders.length; i++) {
+                adders[i] = new LongAdder();
+            }
+        }
+
+        private long sum(PostCounterType type) {
+            return adders[type.ordinal()].sum();
+        }
+
+        private boolean isEmpty() {
+            for (LongAdder adder : adders) {
+                if (adder.sum() != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private PostCounterDelta drain() {
+            PostCounterDelta delta = new PostCounterDelta();
+            delta.setPostId(postId);
+            delta.setLikeDelta(adders[PostCounterType.LIKE.ordinal()].sumThenReset());
+            delta.setCommentDelta(adders[PostCounterType.COMMENT.ordinal()].sumThenReset());
+            delta.setShareDelta(adders[PostCounterType.SHARE.ordinal()].sumThenReset());
+            delta.setViewDelta(adders[PostCounterType.VIEW.ordinal()].sumThenReset());
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.senyu.counter;
+
+import lombok.Data;
+
+/**
+ * 单个内容待落库的计数增量
+ *
+ * @author senyu
+ */
+@Data
+public class PostCounterDelta {
+
+    /**
+     * 内容ID
+     */
+    private Long postId;
+
+    /**
+     * 点赞数增量
+     */
+    private long likeDelta;
+
+    /**
+     * 评论数增量
+     */
+    private long commentDelta;
+
+    /**
+     * 分享数增量
+     */
+    private long shareDelta;
+
+    /**
+     * 浏览数增量
+     */
+    private long viewDelta;
+
+    /**
+     * 增量按热度权重折算的得分
+     */
+    public double hotScore() {
+        return likeDelta * PostCounterType.LIKE.getHotWeight()
+                + commentDelta * PostCounterType.COMMENT.getHotWeight()
+                + shareDelta * PostCounterType.SHARE.getHotWeight()
+                + viewDelta * PostCounterType.VIEW.getHotWeight();
+    }
+
+    /**
+     * 是否没有任何增量
+     */
+    public boolean isEmpty() {
+        return likeDelta == 0 && commentDelta == 0 && shareDelta == 0 && viewDelta == 0;
+    }
+}
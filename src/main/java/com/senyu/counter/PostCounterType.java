@@ -0,0 +1,43 @@
+package com.senyu.counter;
+
+/**
+ * 内容计数类型
+ * 每种互动带有热度权重，热门排行按权重累加互动得分
+ *
+ * @author senyu
+ */
+public enum PostCounterType {
+
+    /**
+     * 点赞数
+     */
+    LIKE(3.0),
+
+    /**
+     * 评论数
+     */
+    COMMENT(5.0),
+
+    /**
+     * 分享数
+     */
+    SHARE(8.0),
+
+    /**
+     * 浏览数
+     */
+    VIEW(0.1);
+
+    /**
+     * 热度权重
+     */
+    private final double hotWeight;
+
+    PostCounterType(double hotWeight) {
+        this.hotWeight = hotWeight;
+    }
+
+    public double getHotWeight() {
+        return hotWeight;
+    }
+}
@@ -0,0 +1,37 @@
+package com.senyu.counter;
+
+import lombok.Data;
+
+/**
+ * 内容的各项计数
+ *
+ * @author senyu
+ */
+@Data
+public class PostCounts {
+
+    /**
+     * 内容ID
+     */
+    private Long postId;
+
+    /**
+     * 点赞数
+     */
+    private long likeCount;
+
+    /**
+     * 评论数
+     */
+    private long commentCount;
+
+    /**
+     * 分享数
+     */
+    private long shareCount;
+
+    /**
+     * 浏览数
+     */
+    private long viewCount;
+}
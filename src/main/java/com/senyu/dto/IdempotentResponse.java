@@ -0,0 +1,21 @@
+package com.senyu.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 幂等请求首次执行的响应，重复请求直接返回该响应
+ *
+ * @author senyu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotentResponse {
+
+    /**
+     * 接口返回值
+     */
+    private Object response;
+}
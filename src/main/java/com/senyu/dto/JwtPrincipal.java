@@ -0,0 +1,60 @@
+package com.senyu.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * 已验签的Token身份信息
+ * 一次解析得到全部载荷，不可变，可在验签缓存中被多个请求共享
+ *
+ * @author senyu
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public final class JwtPrincipal {
+
+    public static final String TOKEN_TYPE_ACCESS = "access";
+
+    public static final String TOKEN_TYPE_REFRESH = "refresh";
+
+    /**
+     * 用户ID
+     */
+    private final Long userId;
+
+    /**
+     * 用户名，Refresh Token中为空
+     */
+    private final String username;
+
+    /**
+     * Token版本号
+     */
+    private final Integer tokenVersion;
+
+    /**
+     * Token类型：access、refresh
+     */
+    private final String tokenType;
+
+    /**
+     * 过期时间
+     */
+    private final Instant expiresAt;
+
+    public boolean isAccessToken() {
+        return TOKEN_TYPE_ACCESS.equals(tokenType);
+    }
+
+    public boolean isRefreshToken() {
+        return TOKEN_TYPE_REFRESH.equals(tokenType);
+    }
+
+    public boolean isExpired() {
+        return expiresAt == null || !expiresAt.isAfter(Instant.now());
+    }
+}
@@ -33,7 +33,7 @@ public class PostPublishDTO {
      * 图片URL列表
      */
     @Size(max = 9, message = "最多上传9张图片")
-    private List<@Pattern(regexp = "^https?://.*", message = "图片URL格式不正确") String> images;
+    private List<@NotNull(message = "图片URL不能为空") @Pattern(regexp = "^https?://.*", message = "图片URL格式不正确") String> images;
 
     /**
      * 视频URL
@@ -0,0 +1,24 @@
+package com.senyu.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 热门话题视图对象
+ *
+ * @author senyu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "热门话题")
+public class TopicTrendVO {
+
+    @Schema(description = "话题", example = "周末去哪儿")
+    private String topic;
+
+    @Schema(description = "窗口内按时间衰减的热度", example = "128.5")
+    private Double heat;
+}
@@ -0,0 +1,79 @@
+package com.senyu.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Feed分发事件实体（事务性发件箱）
+ *
+ * @author senyu
+ */
+@Data
+@TableName("feed_dispatch_event")
+public class FeedDispatchEvent {
+
+    /**
+     * 待分发
+     */
+    public static final int STATUS_PENDING = 0;
+
+    /**
+     * 分发中
+     */
+    public static final int STATUS_PROCESSING = 1;
+
+    /**
+     * 已完成
+     */
+    public static final int STATUS_DONE = 2;
+
+    /**
+     * 重试耗尽，分发失败
+     */
+    public static final int STATUS_FAILED = 3;
+
+    /**
+     * ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 内容ID
+     */
+    private Long postId;
+
+    /**
+     * 内容作者ID
+     */
+    private Long authorId;
+
+    /**
+     * 状态：0-待分发 1-分发中 2-已完成 3-失败
+     */
+    private Integer status;
+
+    /**
+     * 重试次数
+     */
+    private Integer retryCount;
+
+    /**
+     * 可被中继处理的时间（分发中时为租约到期时间）
+     */
+    private LocalDateTime nextRetryAt;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /**
+     * 更新时间
+     */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+}
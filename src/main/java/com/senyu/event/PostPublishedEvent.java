@@ -0,0 +1,26 @@
+package com.senyu.event;
+
+import com.senyu.entity.Post;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 内容发布事件
+ * 在发布事务提交后触发Feed流分发
+ *
+ * @author senyu
+ */
+@Getter
+@AllArgsConstructor
+public class PostPublishedEvent {
+
+    /**
+     * 已发布的内容
+     */
+    private final Post post;
+
+    /**
+     * 与内容在同一事务中写入的分发事件ID
+     */
+    private final Long dispatchEventId;
+}
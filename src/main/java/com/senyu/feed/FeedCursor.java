@@ -0,0 +1,114 @@
+package com.senyu.feed;
+
+import cn.hutool.core.util.StrUtil;
+import com.senyu.common.ResultCode;
+import com.senyu.exception.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 时间线分页游标
+ * 由上一页最后一条的(分值, 内容ID)组成，对外编码为不透明字符串；
+ * Redis、数据库和拉模式归并三条读取路径使用相同的排序与边界：分值降序、内容ID降序，不含游标本身
+ *
+ * @author senyu
+ */
+@Getter
+@AllArgsConstructor
+public class FeedCursor {
+
+    private static final int ENCODED_BYTES = Long.BYTES * 2;
+
+    /**
+     * 上一页最后一条的分值
+     */
+    private final long score;
+
+    /**
+     * 上一页最后一条的内容ID
+     */
+    private final long postId;
+
+    /**
+     * 以时间线条目作为下一页的游标
+     */
+    public static FeedCursor of(FeedEntry entry) {
+        return new FeedCursor(entry.getScore(), entry.getPostId());
+    }
+
+    /**
+     * 解析游标字符串，为空时返回null表示第一页
+     *
+     * @throws BusinessException 游标格式非法
+     */
+    public static FeedCursor decode(String token) {
+        if (StrUtil.isBlank(token)) {
+            return null;
+        }
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(token);
+            if (bytes.length != ENCODED_BYTES) {
+                throw new BusinessException(ResultCode.PARAM_ERROR);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new FeedCursor(buffer.getLong(), buffer.getLong());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ResultCode.PARAM_ERROR);
+        }
+    }
+
+    /**
+     * 编码为URL安全的不透明字符串
+     */
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(ENCODED_BYTES)
+                .putLong(score)
+                .putLong(postId)
+                .array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * 游标对应的时间，用于数据库按创建时间查询
+     */
+    public LocalDateTime time() {
+        return FeedEntry.timeOf(score);
+    }
+
+    /**
+     * 条目是否位于游标之后（即属于下一页）
+     */
+    public boolean precedes(FeedEntry entry) {
+        return entry.getScore() < score || (entry.getScore() == score && entry.getPostId() < postId);
+    }
+
+    /**
+     * ZREVRANGEBYSCORE的分值上界（含），游标为空时不限
+     * 同分值条目需再经过{@link #filter}按内容ID排除
+     */
+    public static double maxScoreOf(FeedCursor cursor) {
+        return cursor == null ? Double.POSITIVE_INFINITY : cursor.score;
+    }
+
+    /**
+     * 过滤掉不在游标之后的条目，游标为空时原样返回
+     */
+    public static List<FeedEntry> filter(List<FeedEntry> entries, FeedCursor cursor) {
+        if (cursor == null) {
+            return entries;
+        }
+        List<FeedEntry> result = new ArrayList<>(entries.size());
+        for (FeedEntry entry : entries) {
+            if (cursor.precedes(entry)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+}
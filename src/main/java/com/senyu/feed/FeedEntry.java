@@ -0,0 +1,45 @@
+package com.senyu.feed;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 时间线条目
+ * 对应收件箱/发件箱ZSet中的一个成员及其分值
+ *
+ * @author senyu
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedEntry {
+
+    /**
+     * 内容ID
+     */
+    private Long postId;
+
+    /**
+     * 排序分值（时间戳）
+     */
+    private long score;
+
+    /**
+     * 将时间转换为ZSet分值（毫秒时间戳）
+     */
+    public static long scoreOf(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 将ZSet分值转换回时间，用于按分值游标查询数据库
+     */
+    public static LocalDateTime timeOf(long score) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(score), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,81 @@
+package com.senyu.feed;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 时间线多路归并工具
+ * 各来源均已按分值降序排列，使用小顶堆做k路归并，只取前N条，复杂度O(N·log k)
+ *
+ * @author senyu
+ */
+public final class FeedMerger {
+
+    /**
+     * 时间线排序规则：分值降序，分值相同按内容ID降序
+     */
+    public static final Comparator<FeedEntry> NEWEST_FIRST = Comparator
+            .comparingLong(FeedEntry::getScore)
+            .thenComparing(FeedEntry::getPostId)
+            .reversed();
+
+    private FeedMerger() {
+    }
+
+    /**
+     * 归并多个降序来源，返回去重后的前limit条
+     *
+     * @param sources 已按NEWEST_FIRST排序的来源列表
+     * @param limit   返回数量上限
+     * @return 归并结果
+     */
+    public static List<FeedEntry> merge(List<List<FeedEntry>> sources, int limit) {
+        PriorityQueue<SourceCursor> heap = new PriorityQueue<>(Math.max(1, sources.size()),
+                (a, b) -> NEWEST_FIRST.compare(a.current(), b.current()));
+        for (List<FeedEntry> source : sources) {
+            if (!source.isEmpty()) {
+                heap.add(new SourceCursor(source));
+            }
+        }
+
+        List<FeedEntry> result = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+        while (!heap.isEmpty() && result.size() < limit) {
+            SourceCursor cursor = heap.poll();
+            FeedEntry entry = cursor.current();
+            if (seen.add(entry.getPostId())) {
+                result.add(entry);
+            }
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 单个来源的读取位置
+     */
+    private static final class SourceCursor {
+
+        private final List<FeedEntry> source;
+
+        private int position;
+
+        private SourceCursor(List<FeedEntry> source) {
+            this.source = source;
+        }
+
+        private FeedEntry current() {
+            return source.get(position);
+        }
+
+        private boolean advance() {
+            return ++position < source.size();
+        }
+    }
+}
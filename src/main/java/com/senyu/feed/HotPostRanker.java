@@ -0,0 +1,224 @@
+package com.senyu.feed;
+
+import com.senyu.cache.SingleFlightCacheLoader;
+import com.senyu.config.FeedConfig;
+import com.senyu.counter.PostCounterDelta;
+import com.senyu.counter.PostCounterType;
+import com.senyu.entity.Post;
+import com.senyu.mapper.PostMapper;
+import com.senyu.serializer.LongRedisSerializer;
+import com.senyu.util.RedisKeyUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热门内容排行
+ * <ul>
+ *     <li>增量更新：计数落库后把各项互动按热度权重折算为得分，累加到热门ZSet</li>
+ *     <li>时间衰减：采用前向衰减，得分按 权重 * e^(λ * (t - 基准时间)) 累加，新互动的权重随时间指数增长，
+ *     等价于旧互动按半衰期衰减，且不需要改写已有成员</li>
+ *     <li>定期重设基准：按当前时间重设基准并整体缩放得分，避免指数溢出，同时裁剪到固定长度</li>
+ *     <li>排行未初始化时，只按(状态, 创建时间)索引扫描最近若干天发布的内容重建</li>
+ * </ul>
+ * 脚本均为原子操作，多实例同时执行结果一致，无需加锁
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class HotPostRanker {
+
+    /**
+     * 累加互动得分，排行未初始化时忽略（重建时会从数据库读到这部分计数）
+     * ARGV: λ, 之后依次为 内容ID, 得分
+     */
+    private static final RedisScript<Long> ADD_SCRIPT = RedisScript.of(
+            "local landmark = tonumber(redis.call('GET', KEYS[2]))\n" +
+            "if landmark == nil then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local boost = math.exp(tonumber(ARGV[1]) * (now - landmark))\n" +
+            "for i = 2, #ARGV, 2 do\n" +
+            "    redis.call('ZINCRBY', KEYS[1], tonumber(ARGV[i + 1]) * boost, ARGV[i])\n" +
+            "end\n" +
+            "return (#ARGV - 1) / 2",
+            Long.class);
+
+    /**
+     * 重设基准时间：整体缩放得分后裁剪到固定长度
+     * ARGV: λ, 保留数量
+     */
+    private static final RedisScript<Long> REBASE_SCRIPT = RedisScript.of(
+            "local landmark = tonumber(redis.call('GET', KEYS[2]))\n" +
+            "if landmark == nil then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "if now > landmark then\n" +
+            "    local factor = math.exp(-tonumber(ARGV[1]) * (now - landmark))\n" +
+            "    redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', tostring(factor))\n" +
+            "    redis.call('SET', KEYS[2], now)\n" +
+            "end\n" +
+            "return redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -(tonumber(ARGV[2]) + 1))",
+            Long.class);
+
+    /**
+     * 从数据库重建排行，已被其它实例初始化时不做任何修改
+     * ARGV: λ, 保留数量, 之后依次为 内容ID, 得分, 发布时间（毫秒）
+     */
+    private static final RedisScript<Long> REBUILD_SCRIPT = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local lambda = tonumber(ARGV[1])\n" +
+            "redis.call('DEL', KEYS[1])\n" +
+            "for i = 3, #ARGV, 3 do\n" +
+            "    local score = tonumber(ARGV[i + 1]) * math.exp(lambda * (tonumber(ARGV[i + 2]) - now))\n" +
+            "    redis.call('ZADD', KEYS[1], score, ARGV[i])\n" +
+            "end\n" +
+            "redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -(tonumber(ARGV[2]) + 1))\n" +
+            "redis.call('SET', KEYS[2], now)\n" +
+            "return (#ARGV - 2) / 3",
+            Long.class);
+
+    @Resource
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private SingleFlightCacheLoader cacheLoader;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    /**
+     * 累加一批计数增量的热度得分，失败时只记录日志，不影响计数落库
+     */
+    public void recordAll(List<PostCounterDelta> deltas) {
+        List<String> args = new ArrayList<>(deltas.size() * 2 + 1);
+        args.add(String.valueOf(decayRate()));
+        for (PostCounterDelta delta : deltas) {
+            double score = delta.hotScore();
+            if (score != 0) {
+                args.add(String.valueOf(delta.getPostId()));
+                args.add(String.valueOf(score));
+            }
+        }
+        if (args.size() == 1) {
+            return;
+        }
+
+        try {
+            execute(ADD_SCRIPT, args);
+        } catch (Exception e) {
+            log.warn("更新热门排行失败，数量：{}", (args.size() - 1) / 2, e);
+        }
+    }
+
+    /**
+     * 按热度从高到低读取内容ID，排行未初始化时先从数据库重建
+     *
+     * @param offset 起始位置
+     * @param count  数量
+     */
+    public List<Long> topIds(long offset, int count) {
+        List<Long> ids = range(offset, count);
+        if (!ids.isEmpty() || Boolean.TRUE.equals(idRedisTemplate.hasKey(RedisKeyUtil.getHotPostsLandmarkKey()))) {
+            return ids;
+        }
+
+        log.debug("热门排行未初始化，从数据库重建");
+        cacheLoader.coalesce("hot_posts", RedisKeyUtil.getHotPostsKey(), this::rebuild);
+        return range(offset, count);
+    }
+
+    /**
+     * 定期重设衰减基准并裁剪排行
+     */
+    @Scheduled(fixedDelayString = "${feed.hot-rebase-interval-ms:60000}")
+    public void rebase() {
+        try {
+            Long removed = execute(REBASE_SCRIPT, List.of(
+                    String.valueOf(decayRate()),
+                    String.valueOf(feedConfig.getHotMaxSize())));
+            log.debug("热门排行重设基准完成，裁剪{}个内容", removed);
+        } catch (Exception e) {
+            log.warn("热门排行重设基准失败：{}", e.getMessage());
+        }
+    }
+
+    private List<Long> range(long offset, int count) {
+        if (offset >= feedConfig.getHotMaxSize()) {
+            return List.of();
+        }
+        Set<Long> ids = idRedisTemplate.opsForZSet()
+                .reverseRange(RedisKeyUtil.getHotPostsKey(), offset, offset + count - 1);
+        return ids == null ? List.of() : new ArrayList<>(ids);
+    }
+
+    /**
+     * 扫描最近发布的内容，互动得分按发布时间折算
+     */
+    private Long rebuild() {
+        LocalDateTime since = LocalDateTime.now().minusDays(feedConfig.getHotRebuildDays());
+        List<Post> posts = postMapper.selectRecentForRanking(since, feedConfig.getHotRebuildScanLimit());
+
+        List<String> args = new ArrayList<>(posts.size() * 3 + 2);
+        args.add(String.valueOf(decayRate()));
+        args.add(String.valueOf(feedConfig.getHotMaxSize()));
+        ZoneId zone = ZoneId.systemDefault();
+        for (Post post : posts) {
+            args.add(String.valueOf(post.getId()));
+            args.add(String.valueOf(score(post)));
+            args.add(String.valueOf(post.getCreatedAt().atZone(zone).toInstant().toEpochMilli()));
+        }
+        Long rebuilt = execute(REBUILD_SCRIPT, args);
+        log.info("热门排行重建完成，扫描{}个内容，写入{}个", posts.size(), rebuilt);
+        return rebuilt;
+    }
+
+    private static double score(Post post) {
+        return count(post.getLikeCount()) * PostCounterType.LIKE.getHotWeight()
+                + count(post.getCommentCount()) * PostCounterType.COMMENT.getHotWeight()
+                + count(post.getShareCount()) * PostCounterType.SHARE.getHotWeight()
+                + count(post.getViewCount()) * PostCounterType.VIEW.getHotWeight();
+    }
+
+    private static long count(Integer value) {
+        return value == null ? 0L : value;
+    }
+
+    /**
+     * 衰减系数λ（每毫秒），经过一个半衰期得分减半
+     */
+    private double decayRate() {
+        return Math.log(2) / TimeUnit.MINUTES.toMillis(feedConfig.getHotHalfLifeMinutes());
+    }
+
+    private Long execute(RedisScript<Long> script, List<String> args) {
+        return idRedisTemplate.execute(script,
+                StringRedisSerializer.UTF_8,
+                LongRedisSerializer.INSTANCE,
+                List.of(RedisKeyUtil.getHotPostsKey(), RedisKeyUtil.getHotPostsLandmarkKey()),
+                args.toArray());
+    }
+}
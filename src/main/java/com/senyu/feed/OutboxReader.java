@@ -0,0 +1,227 @@
+package com.senyu.feed;
+
+import com.google.common.collect.Lists;
+import com.senyu.config.FeedConfig;
+import com.senyu.entity.Post;
+import com.senyu.mapper.PostMapper;
+import com.senyu.util.RedisKeyUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 发件箱读取器
+ * 通过pipeline一次性读取多个作者发件箱ZSet的前N条，在内存中k路归并；
+ * 仅对发件箱缓存缺失的作者查询数据库，并异步回填其发件箱；没有内容的作者回填为空标记，短时间内不再回源。
+ * 发件箱已裁剪到最大长度时，翻页超出缓存范围的部分同样从数据库读取
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class OutboxReader {
+
+    /**
+     * 单次请求最多触发回填的作者数
+     */
+    private static final int MAX_BACKFILL_PER_READ = 32;
+
+    /**
+     * 每次ZREVRANGEBYSCORE在一页之外多取的条数，用于跳过与游标同分值的条目
+     */
+    private static final int TIE_OVERFETCH = 8;
+
+    @Resource
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private TimelineWriter timelineWriter;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource(name = "commonAsyncExecutor")
+    private Executor commonAsyncExecutor;
+
+    /**
+     * 正在回填的作者，避免并发请求重复回填
+     */
+    private final Set<Long> backfilling = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 读取多个作者发件箱中位于游标之后的最新内容，归并后返回前limit条
+     *
+     * @param authorIds 作者ID列表
+     * @param cursor    分页游标，为空时从最新开始
+     * @param limit     返回数量上限
+     * @return 按时间倒序的时间线条目
+     */
+    public List<FeedEntry> readLatest(List<Long> authorIds, FeedCursor cursor, int limit) {
+        if (authorIds.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        List<List<FeedEntry>> sources = new ArrayList<>();
+        List<Long> missedAuthorIds = new ArrayList<>();
+        List<Long> trimmedAuthorIds = new ArrayList<>();
+
+        // 1. 按批pipeline读取发件箱，每个作者一次 EXISTS + ZREVRANGEBYSCORE + ZCARD
+        int window = limit + TIE_OVERFETCH;
+        for (List<Long> chunk : Lists.partition(authorIds, feedConfig.getFanoutBatchSize())) {
+            List<Object> results = pipelineRead(chunk, FeedCursor.maxScoreOf(cursor), window);
+            for (int i = 0; i < chunk.size(); i++) {
+                Boolean exists = (Boolean) results.get(i * 3);
+                if (!Boolean.TRUE.equals(exists)) {
+                    missedAuthorIds.add(chunk.get(i));
+                    continue;
+                }
+                List<FeedEntry> page = completePage(toEntries(results.get(i * 3 + 1)), window, cursor, limit);
+                // 同分值条目超出预取窗口，单独扩大窗口重读该作者
+                if (page == null) {
+                    page = readPage(RedisKeyUtil.getUserOutboxKey(chunk.get(i)), cursor, limit);
+                }
+                // 发件箱已被裁剪且不足一页，更早的内容只在数据库中
+                Long size = (Long) results.get(i * 3 + 2);
+                if (page.size() < limit && size != null && size >= feedConfig.getMaxFeedSize()) {
+                    trimmedAuthorIds.add(chunk.get(i));
+                    continue;
+                }
+                sources.add(page);
+            }
+        }
+
+        // 2. 发件箱缓存缺失或翻页超出缓存范围的作者，一次查询数据库补齐；缓存缺失的异步回填
+        List<Long> dbAuthorIds = new ArrayList<>(missedAuthorIds);
+        dbAuthorIds.addAll(trimmedAuthorIds);
+        if (!dbAuthorIds.isEmpty()) {
+            log.debug("{}个作者发件箱缓存缺失，{}个作者超出缓存范围，从数据库读取",
+                    missedAuthorIds.size(), trimmedAuthorIds.size());
+            List<FeedEntry> fromDb = postMapper.selectLatestByUserIds(dbAuthorIds,
+                            cursor == null ? null : cursor.time(),
+                            cursor == null ? null : cursor.getPostId(),
+                            limit)
+                    .stream()
+                    .map(post -> new FeedEntry(post.getId(), FeedEntry.scoreOf(post.getCreatedAt())))
+                    .toList();
+            sources.add(fromDb);
+            if (!missedAuthorIds.isEmpty()) {
+                backfillAsync(missedAuthorIds);
+            }
+        }
+
+        // 3. k路归并
+        return FeedMerger.merge(sources, limit);
+    }
+
+    /**
+     * 读取单个时间线ZSet（收件箱或发件箱）中位于游标之后的一页
+     * 分值上界取游标分值（含），同分值条目按内容ID过滤；通常一次ZREVRANGEBYSCORE即可完成
+     *
+     * @param key    ZSet的key
+     * @param cursor 分页游标，为空时从最新开始
+     * @param limit  返回数量上限
+     * @return 按NEWEST_FIRST排序的条目，key不存在时为空
+     */
+    public List<FeedEntry> readPage(String key, FeedCursor cursor, int limit) {
+        double max = FeedCursor.maxScoreOf(cursor);
+        int window = limit + TIE_OVERFETCH;
+        while (true) {
+            Set<ZSetOperations.TypedTuple<Long>> tuples = idRedisTemplate.opsForZSet()
+                    .reverseRangeByScoreWithScores(key, Double.NEGATIVE_INFINITY, max, 0, window);
+            List<FeedEntry> page = completePage(toEntries(tuples), window, cursor, limit);
+            if (page != null) {
+                return page;
+            }
+            window *= 2;
+        }
+    }
+
+    /**
+     * 从按分值降序的预取结果中截取游标之后的一页
+     * 结果被窗口截断时，最后一个分值的同分值条目可能不完整，需要排除后再判断是否够一页
+     *
+     * @return 完整的一页；预取窗口不足以确定一页时返回null
+     */
+    private List<FeedEntry> completePage(List<FeedEntry> fetched, int window, FeedCursor cursor, int limit) {
+        List<FeedEntry> complete = fetched;
+        boolean truncated = fetched.size() >= window;
+        if (truncated) {
+            long boundary = fetched.get(fetched.size() - 1).getScore();
+            complete = fetched.stream()
+                    .filter(entry -> entry.getScore() != boundary)
+                    .toList();
+        }
+        List<FeedEntry> page = new ArrayList<>(FeedCursor.filter(complete, cursor));
+        if (truncated && page.size() < limit) {
+            return null;
+        }
+        // Redis同分值成员按字典序排列，统一为NEWEST_FIRST
+        page.sort(FeedMerger.NEWEST_FIRST);
+        return page.size() > limit ? page.subList(0, limit) : page;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> pipelineRead(List<Long> authorIds, double max, int count) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) idRedisTemplate.getKeySerializer();
+        return idRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long authorId : authorIds) {
+                byte[] rawKey = keySerializer.serialize(RedisKeyUtil.getUserOutboxKey(authorId));
+                connection.keyCommands().exists(rawKey);
+                connection.zSetCommands().zRevRangeByScoreWithScores(rawKey, Double.NEGATIVE_INFINITY, max, 0, count);
+                connection.zSetCommands().zCard(rawKey);
+            }
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<FeedEntry> toEntries(Object result) {
+        if (!(result instanceof Set<?> tuples) || tuples.isEmpty()) {
+            return List.of();
+        }
+        List<FeedEntry> entries = new ArrayList<>(tuples.size());
+        for (ZSetOperations.TypedTuple<Long> tuple : (Set<ZSetOperations.TypedTuple<Long>>) tuples) {
+            // 空标记分值最低，只会出现在结果末尾
+            if (tuple.getValue() != TimelineWriter.EMPTY_MARKER) {
+                entries.add(new FeedEntry(tuple.getValue(), tuple.getScore().longValue()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 从内容表回填作者发件箱缓存
+     */
+    private void backfillAsync(List<Long> authorIds) {
+        authorIds.stream()
+                .limit(MAX_BACKFILL_PER_READ)
+                .filter(backfilling::add)
+                .forEach(authorId -> commonAsyncExecutor.execute(() -> {
+                    try {
+                        List<Post> posts = postMapper.selectLatestByUserIds(
+                                List.of(authorId), null, null, feedConfig.getMaxFeedSize());
+                        List<FeedEntry> entries = posts.stream()
+                                .map(post -> new FeedEntry(post.getId(), FeedEntry.scoreOf(post.getCreatedAt())))
+                                .toList();
+                        timelineWriter.mergeIntoOutbox(authorId, entries);
+                    } catch (Exception e) {
+                        log.warn("回填发件箱失败，作者ID：{}", authorId, e);
+                    } finally {
+                        backfilling.remove(authorId);
+                    }
+                }));
+    }
+}
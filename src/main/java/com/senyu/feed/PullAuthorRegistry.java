@@ -0,0 +1,71 @@
+package com.senyu.feed;
+
+import com.google.common.collect.Lists;
+import com.senyu.config.FeedConfig;
+import com.senyu.mapper.UserMapper;
+import com.senyu.util.RedisKeyUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 拉模式作者登记
+ * 粉丝数达到拉模式阈值的作者，新内容只写发件箱，粉丝读取时间线时按该集合合并其发件箱。
+ * 启动时按粉丝数初始化集合，之后在作者粉丝数越过阈值或发布内容时更新，
+ * 不依赖作者再次发布，已有大V的粉丝也能读到其发件箱
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class PullAuthorRegistry {
+
+    @Resource
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    /**
+     * 启动时按粉丝数登记已有的拉模式作者，重复登记无副作用
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        try {
+            List<Long> authorIds = userMapper.selectIdsByMinFollowerCount(feedConfig.getPullFanThreshold());
+            for (List<Long> chunk : Lists.partition(authorIds, feedConfig.getFanoutBatchSize())) {
+                idRedisTemplate.opsForSet().add(RedisKeyUtil.getPullAuthorsKey(), chunk.toArray(new Long[0]));
+            }
+            log.info("登记拉模式作者{}个", authorIds.size());
+        } catch (Exception e) {
+            log.error("初始化拉模式作者集合失败", e);
+        }
+    }
+
+    /**
+     * 粉丝数变化后检查作者是否达到拉模式阈值
+     * 只在越过阈值时登记；粉丝数回落后仍保留，直到作者下次发布时按新的分发策略移除，
+     * 避免此前只写入发件箱的内容从粉丝的时间线中消失
+     */
+    public void onFollowerCountChanged(Long authorId, long followerCount) {
+        if (followerCount >= feedConfig.getPullFanThreshold()) {
+            register(authorId);
+        }
+    }
+
+    public void register(Long authorId) {
+        idRedisTemplate.opsForSet().add(RedisKeyUtil.getPullAuthorsKey(), authorId);
+    }
+
+    public void unregister(Long authorId) {
+        idRedisTemplate.opsForSet().remove(RedisKeyUtil.getPullAuthorsKey(), authorId);
+    }
+}
@@ -0,0 +1,200 @@
+package com.senyu.feed;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.senyu.config.FeedConfig;
+import com.senyu.serializer.LongRedisSerializer;
+import com.senyu.util.RedisKeyUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户已读内容过滤器
+ * 只用于推荐：记录推荐返回过的内容，重新生成推荐时排除；关注Feed流按时间完整展示，不经过该过滤器。
+ * 每个用户按周期轮换的布隆过滤器，存储为Redis位图；写入当前周期，同时检查当前和上一周期，
+ * 已读记录保留一到两个周期，过期周期的位图随TTL自动删除。
+ * 位图大小与哈希次数按每周期预计内容数和目标误判率计算，单个位图在默认配置下约2.4KB；
+ * 检查时一次MGET取回两个位图在本地判断，记录时一次脚本写入全部位
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class SeenPostFilter {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * 将给定偏移量的位置1并刷新过期时间
+     * ARGV: 过期秒数, 之后为位偏移量
+     */
+    private static final RedisScript<Long> MARK_SCRIPT = RedisScript.of(
+            "for i = 2, #ARGV do\n" +
+            "    redis.call('SETBIT', KEYS[1], ARGV[i], 1)\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1])\n" +
+            "return #ARGV - 1",
+            Long.class);
+
+    @Resource
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource(name = "commonAsyncExecutor")
+    private Executor commonAsyncExecutor;
+
+    /**
+     * 位图的位数
+     */
+    private long bitSize;
+
+    /**
+     * 每个内容的哈希次数
+     */
+    private int hashCount;
+
+    private Counter filteredCounter;
+
+    @PostConstruct
+    public void init() {
+        long expected = Math.max(1, feedConfig.getSeenFilterExpectedPosts());
+        double fpp = feedConfig.getSeenFilterFpp();
+        bitSize = Math.max(64, (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        hashCount = Math.max(1, (int) Math.round((double) bitSize / expected * Math.log(2)));
+        filteredCounter = Counter.builder("feed.seen.filtered")
+                .description("因已读被过滤的内容数")
+                .register(meterRegistry);
+        log.info("已读过滤器：每周期{}位，哈希{}次", bitSize, hashCount);
+    }
+
+    /**
+     * 找出用户已读过的内容，存在一定误判率（未读被判为已读），不会漏判
+     * Redis不可用时视为全部未读
+     *
+     * @return 已读内容ID
+     */
+    public Set<Long> seen(Long userId, Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Set.of();
+        }
+        long generation = currentGeneration();
+        List<byte[]> bitmaps;
+        try {
+            bitmaps = idRedisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.stringCommands()
+                    .mGet(StringRedisSerializer.UTF_8.serialize(RedisKeyUtil.getUserSeenKey(userId, generation)),
+                            StringRedisSerializer.UTF_8.serialize(RedisKeyUtil.getUserSeenKey(userId, generation - 1))));
+        } catch (Exception e) {
+            log.warn("读取已读过滤器失败，用户ID：{}：{}", userId, e.getMessage());
+            return Set.of();
+        }
+        if (bitmaps == null || bitmaps.stream().allMatch(bitmap -> bitmap == null || bitmap.length == 0)) {
+            return Set.of();
+        }
+
+        Set<Long> seen = new HashSet<>();
+        long[] offsets = new long[hashCount];
+        for (Long postId : postIds) {
+            offsets(postId, offsets);
+            for (byte[] bitmap : bitmaps) {
+                if (containsAll(bitmap, offsets)) {
+                    seen.add(postId);
+                    break;
+                }
+            }
+        }
+        filteredCounter.increment(seen.size());
+        return seen;
+    }
+
+    /**
+     * 异步记录用户已读的内容，失败时只记录日志
+     */
+    public void markSeenAsync(Long userId, List<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        commonAsyncExecutor.execute(() -> {
+            try {
+                markSeen(userId, postIds);
+            } catch (Exception e) {
+                log.warn("记录已读内容失败，用户ID：{}：{}", userId, e.getMessage());
+            }
+        });
+    }
+
+    private void markSeen(Long userId, List<Long> postIds) {
+        long rotateSeconds = TimeUnit.HOURS.toSeconds(feedConfig.getSeenFilterRotateHours());
+        List<String> args = new ArrayList<>(1 + postIds.size() * hashCount);
+        // 当前周期的位图还需在下一个周期内被检查
+        args.add(String.valueOf(rotateSeconds * 2));
+        long[] offsets = new long[hashCount];
+        for (Long postId : postIds) {
+            offsets(postId, offsets);
+            for (long offset : offsets) {
+                args.add(String.valueOf(offset));
+            }
+        }
+        idRedisTemplate.execute(MARK_SCRIPT,
+                StringRedisSerializer.UTF_8,
+                LongRedisSerializer.INSTANCE,
+                List.of(RedisKeyUtil.getUserSeenKey(userId, currentGeneration())),
+                args.toArray());
+    }
+
+    /**
+     * 双重哈希：由128位哈希的高低两半生成hashCount个位偏移量
+     */
+    private void offsets(long postId, long[] offsets) {
+        ByteBuffer buffer = ByteBuffer.wrap(HASH_FUNCTION.hashLong(postId).asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        long hash1 = buffer.getLong();
+        long hash2 = buffer.getLong();
+        long combined = hash1;
+        for (int i = 0; i < hashCount; i++) {
+            offsets[i] = (combined & Long.MAX_VALUE) % bitSize;
+            combined += hash2;
+        }
+    }
+
+    /**
+     * Redis位图中偏移量0对应第一个字节的最高位
+     */
+    private static boolean containsAll(byte[] bitmap, long[] offsets) {
+        if (bitmap == null) {
+            return false;
+        }
+        for (long offset : offsets) {
+            int index = (int) (offset >>> 3);
+            if (index >= bitmap.length || (bitmap[index] & (0x80 >>> (offset & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long currentGeneration() {
+        return System.currentTimeMillis() / TimeUnit.HOURS.toMillis(feedConfig.getSeenFilterRotateHours());
+    }
+}
@@ -0,0 +1,347 @@
+package com.senyu.feed;
+
+import com.google.common.collect.Lists;
+import com.senyu.config.FeedConfig;
+import com.senyu.serializer.LongRedisSerializer;
+import com.senyu.util.CachedWriteScripts;
+import com.senyu.util.RedisKeyUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Feed时间线批量写入器
+ * 将多个ZSet的 ZADD + 裁剪 + EXPIRE 合并到pipeline中分批发送，每批只需一次网络往返；
+ * 追加单条内容时只写入已缓存的ZSet，未缓存的由读取方从数据库整体重建
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class TimelineWriter {
+
+    /**
+     * 空标记成员：数据库中没有内容时写入该成员并设置较短的过期时间，
+     * 使key存在以缓存“为空”的结果，避免每次读取都回源；分值最低，读取时过滤
+     */
+    static final long EMPTY_MARKER = 0L;
+
+    @Resource
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Timer timelineBatchTimer;
+
+    private Timer outboxBatchTimer;
+
+    private Timer topicBatchTimer;
+
+    private Timer recommendBatchTimer;
+
+    private DistributionSummary batchSizeSummary;
+
+    private Counter writtenCounter;
+
+    private Counter failedCounter;
+
+    @PostConstruct
+    public void init() {
+        timelineBatchTimer = Timer.builder("feed.fanout.batch.latency")
+                .description("单批pipeline写入耗时")
+                .tag("target", "timeline")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        outboxBatchTimer = Timer.builder("feed.fanout.batch.latency")
+                .description("单批pipeline写入耗时")
+                .tag("target", "outbox")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        topicBatchTimer = Timer.builder("feed.fanout.batch.latency")
+                .description("单批pipeline写入耗时")
+                .tag("target", "topic")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        recommendBatchTimer = Timer.builder("feed.fanout.batch.latency")
+                .description("单批pipeline写入耗时")
+                .tag("target", "recommend")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("feed.fanout.batch.size")
+                .description("单批pipeline包含的ZSet数")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("feed.fanout.entries")
+                .description("成功写入的时间线条目数")
+                .tag("result", "success")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("feed.fanout.entries")
+                .description("写入失败的时间线条目数")
+                .tag("result", "failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 将内容批量写入多个用户的收件箱时间线，时间线未缓存的用户跳过，下次读取时重建
+     *
+     * @param userIds 接收者ID列表
+     * @param postId  内容ID
+     * @param score   排序分值
+     * @return 写入的时间线数量
+     */
+    public int appendToTimelines(List<Long> userIds, Long postId, long score) {
+        int written = 0;
+        for (List<Long> chunk : Lists.partition(userIds, feedConfig.getFanoutBatchSize())) {
+            List<String> keys = chunk.stream()
+                    .map(RedisKeyUtil::getUserFeedKey)
+                    .toList();
+            written += writeBatch(keys, postId, score, timelineBatchTimer);
+        }
+        return written;
+    }
+
+    /**
+     * 将内容写入作者的发件箱，发件箱未缓存时跳过，由读取方从数据库回填
+     *
+     * @param userId 作者ID
+     * @param postId 内容ID
+     * @param score  排序分值
+     * @return 是否写入
+     */
+    public boolean appendToOutbox(Long userId, Long postId, long score) {
+        return appendIfExists(RedisKeyUtil.getUserOutboxKey(userId), postId, score, outboxBatchTimer);
+    }
+
+    /**
+     * 将多条内容合并写入一个用户的收件箱时间线，用于从发件箱重建时间线
+     *
+     * @param userId  用户ID
+     * @param entries 时间线条目
+     * @return 是否写入成功
+     */
+    public boolean mergeIntoTimeline(Long userId, List<FeedEntry> entries) {
+        return mergeInto(RedisKeyUtil.getUserFeedKey(userId), entries, false,
+                feedConfig.getMaxFeedSize(), feedConfig.getCacheTtl(), timelineBatchTimer);
+    }
+
+    /**
+     * 将多条内容合并写入作者的发件箱，用于发件箱缓存过期后回填
+     * 作者没有内容时写入空标记，短时间内不再回源
+     *
+     * @param userId  作者ID
+     * @param entries 发件箱条目
+     * @return 是否写入成功
+     */
+    public boolean mergeIntoOutbox(Long userId, List<FeedEntry> entries) {
+        String key = RedisKeyUtil.getUserOutboxKey(userId);
+        if (entries.isEmpty()) {
+            return markEmpty(key, false, feedConfig.getEmptyCacheTtlSeconds(), outboxBatchTimer);
+        }
+        return mergeInto(key, entries, false, feedConfig.getMaxFeedSize(), feedConfig.getCacheTtl(), outboxBatchTimer);
+    }
+
+    /**
+     * 将内容写入话题时间线，话题时间线未缓存时跳过，由读取方整体重建
+     *
+     * @param topic  话题
+     * @param postId 内容ID
+     * @param score  排序分值
+     * @return 是否写入
+     */
+    public boolean appendToTopic(String topic, Long postId, long score) {
+        return appendIfExists(RedisKeyUtil.getTopicFeedKey(topic), postId, score, topicBatchTimer);
+    }
+
+    /**
+     * 单个时间线ZSet已缓存时写入内容，并裁剪、刷新过期时间
+     */
+    private boolean appendIfExists(String key, Long postId, long score, Timer timer) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Long result = idRedisTemplate.execute(CachedWriteScripts.ZADD_IF_EXISTS,
+                    StringRedisSerializer.UTF_8,
+                    LongRedisSerializer.INSTANCE,
+                    List.of(key),
+                    String.valueOf(score),
+                    String.valueOf(postId),
+                    String.valueOf(feedConfig.getMaxFeedSize()),
+                    String.valueOf(feedConfig.getCacheTtl()));
+            boolean written = result != null && result > 0;
+            if (written) {
+                writtenCounter.increment();
+            }
+            return written;
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("写入Redis时间线失败，key：{}，内容ID：{}", key, postId, e);
+            return false;
+        } finally {
+            sample.stop(timer);
+            batchSizeSummary.record(1);
+        }
+    }
+
+    /**
+     * 将多条内容合并写入话题时间线，用于话题时间线缓存未命中时重建；没有内容时写入空标记
+     *
+     * @param topic   话题
+     * @param entries 时间线条目
+     * @return 是否写入成功
+     */
+    public boolean mergeIntoTopic(String topic, List<FeedEntry> entries) {
+        String key = RedisKeyUtil.getTopicFeedKey(topic);
+        if (entries.isEmpty()) {
+            return markEmpty(key, false, feedConfig.getEmptyCacheTtlSeconds(), topicBatchTimer);
+        }
+        return mergeInto(key, entries, false,
+                feedConfig.getMaxFeedSize(), feedConfig.getCacheTtl(), topicBatchTimer);
+    }
+
+    /**
+     * 以新生成的推荐结果替换用户的推荐缓存；没有推荐结果时写入空标记，缓存期内不再重新生成
+     *
+     * @param userId  用户ID
+     * @param entries 按推荐名次计分的条目
+     * @return 是否写入成功
+     */
+    public boolean replaceRecommendations(Long userId, List<FeedEntry> entries) {
+        String key = RedisKeyUtil.getUserRecommendKey(userId);
+        if (entries.isEmpty()) {
+            return markEmpty(key, true, feedConfig.getRecommendCacheTtlSeconds(), recommendBatchTimer);
+        }
+        return mergeInto(key, entries, true,
+                feedConfig.getRecommendCacheSize(), feedConfig.getRecommendCacheTtlSeconds(), recommendBatchTimer);
+    }
+
+    /**
+     * 在一个pipeline内向单个ZSet写入多个成员，并裁剪、刷新过期时间
+     *
+     * @param replace 是否先删除已有成员
+     */
+    @SuppressWarnings("unchecked")
+    private boolean mergeInto(String key, List<FeedEntry> entries, boolean replace, long maxSize, long ttl,
+                              Timer timer) {
+        if (entries.isEmpty()) {
+            return true;
+        }
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) idRedisTemplate.getKeySerializer();
+        RedisSerializer<Long> valueSerializer = LongRedisSerializer.INSTANCE;
+        byte[] rawKey = keySerializer.serialize(key);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            idRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                if (replace) {
+                    connection.keyCommands().del(rawKey);
+                }
+                for (FeedEntry entry : entries) {
+                    connection.zSetCommands().zAdd(rawKey, entry.getScore(), valueSerializer.serialize(entry.getPostId()));
+                }
+                connection.zSetCommands().zRemRange(rawKey, 0, -(maxSize + 1));
+                connection.keyCommands().expire(rawKey, ttl);
+                return null;
+            });
+            writtenCounter.increment(entries.size());
+            return true;
+        } catch (Exception e) {
+            failedCounter.increment(entries.size());
+            log.error("合并写入Redis ZSet失败，key：{}，条目数：{}", key, entries.size(), e);
+            return false;
+        } finally {
+            sample.stop(timer);
+            batchSizeSummary.record(1);
+        }
+    }
+
+    /**
+     * 写入空标记并设置过期时间
+     * 不替换时保留已有成员，空标记分值最低，有新内容写入后不影响读取
+     *
+     * @param replace 是否先删除已有成员
+     * @param ttl     过期时间（秒）
+     */
+    @SuppressWarnings("unchecked")
+    private boolean markEmpty(String key, boolean replace, long ttl, Timer timer) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) idRedisTemplate.getKeySerializer();
+        byte[] rawKey = keySerializer.serialize(key);
+        byte[] member = LongRedisSerializer.INSTANCE.serialize(EMPTY_MARKER);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            idRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                if (replace) {
+                    connection.keyCommands().del(rawKey);
+                }
+                connection.zSetCommands().zAdd(rawKey, EMPTY_MARKER, member);
+                connection.keyCommands().expire(rawKey, ttl);
+                return null;
+            });
+            return true;
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("写入空标记失败，key：{}", key, e);
+            return false;
+        } finally {
+            sample.stop(timer);
+            batchSizeSummary.record(1);
+        }
+    }
+
+    /**
+     * 在一个pipeline内对每个已缓存的key执行 ZADD、按排名裁剪到最大长度、刷新过期时间
+     *
+     * @return 写入的key数量
+     */
+    @SuppressWarnings("unchecked")
+    private int writeBatch(List<String> keys, Long postId, long score, Timer timer) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) idRedisTemplate.getKeySerializer();
+        byte[] script = bytes(CachedWriteScripts.ZADD_IF_EXISTS.getScriptAsString());
+        byte[] rawScore = bytes(String.valueOf(score));
+        byte[] member = LongRedisSerializer.INSTANCE.serialize(postId);
+        byte[] maxSize = bytes(String.valueOf(feedConfig.getMaxFeedSize()));
+        byte[] ttl = bytes(String.valueOf(feedConfig.getCacheTtl()));
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<Object> results = idRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.scriptingCommands().eval(script, ReturnType.INTEGER, 1,
+                            keySerializer.serialize(key), rawScore, member, maxSize, ttl);
+                }
+                return null;
+            });
+            int written = (int) results.stream()
+                    .filter(result -> result instanceof Long value && value > 0)
+                    .count();
+            writtenCounter.increment(written);
+            return written;
+        } catch (Exception e) {
+            failedCounter.increment(keys.size());
+            log.error("批量写入Redis时间线失败，内容ID：{}，批大小：{}", postId, keys.size(), e);
+            return 0;
+        } finally {
+            sample.stop(timer);
+            batchSizeSummary.record(keys.size());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,10 +1,13 @@
 package com.senyu.interceptor;
 
 import cn.hutool.core.util.StrUtil;
+import com.senyu.cache.AuthSnapshot;
+import com.senyu.cache.AuthSnapshotCache;
 import com.senyu.common.ResultCode;
 import com.senyu.config.JwtConfig;
-import com.senyu.entity.User;
+import com.senyu.dto.JwtPrincipal;
 import com.senyu.exception.BusinessException;
+import com.senyu.service.UserActivityService;
 import com.senyu.service.UserService;
 import com.senyu.util.JwtUtil;
 import jakarta.servlet.http.HttpServletRequest;
@@ -27,6 +30,8 @@ public class JwtAuthenticationInterceptor implements HandlerInterceptor {
     private final JwtUtil jwtUtil;
     private final JwtConfig jwtConfig;
     private final UserService userService;
+    private final AuthSnapshotCache authSnapshotCache;
+    private final UserActivityService userActivityService;
 
     /**
      * 用户ID请求属性名
@@ -55,17 +60,11 @@ public class JwtAuthenticationInterceptor implements HandlerInterceptor {
             throw new BusinessException(ResultCode.INVALID_TOKEN);
         }
 
-        // 检查Token是否过期
-        if (jwtUtil.isTokenExpired(token)) {
-            log.warn("Token已过期: {}", request.getRequestURI());
-            throw new BusinessException(ResultCode.TOKEN_EXPIRED);
-        }
-
-        // 获取Token中的用户信息
-        Long userId = jwtUtil.getUserIdFromToken(token);
-        String username = jwtUtil.getUsernameFromToken(token);
-        Integer tokenVersion = jwtUtil.getTokenVersionFromToken(token);
-        String tokenType = jwtUtil.getTokenTypeFromToken(token);
+        // 一次验签解析全部身份信息，过期或无效时抛出异常
+        JwtPrincipal principal = jwtUtil.parseToken(token);
+        Long userId = principal.getUserId();
+        String username = principal.getUsername();
+        Integer tokenVersion = principal.getTokenVersion();
 
         if (userId == null || tokenVersion == null) {
             log.warn("Token信息不完整: {}", request.getRequestURI());
@@ -73,28 +72,28 @@ public class JwtAuthenticationInterceptor implements HandlerInterceptor {
         }
 
         // 只允许access token访问接口（refresh token仅用于刷新）
-        if (!"access".equals(tokenType)) {
-            log.warn("Token类型不正确: {}, tokenType={}", request.getRequestURI(), tokenType);
+        if (!principal.isAccessToken()) {
+            log.warn("Token类型不正确: {}, tokenType={}", request.getRequestURI(), principal.getTokenType());
             throw new BusinessException(ResultCode.INVALID_TOKEN);
         }
 
-        // 验证用户是否存在
-        User user = userService.getUserById(userId);
-        if (user == null) {
+        // 验证用户是否存在，认证只读取本地的认证快照
+        AuthSnapshot snapshot = authSnapshotCache.get(userId, userService::getUserById);
+        if (snapshot == null) {
             log.warn("用户不存在: userId={}", userId);
             throw new BusinessException(ResultCode.USER_NOT_FOUND);
         }
 
         // 检查用户是否活跃
-        if (!user.getIsActive()) {
+        if (!snapshot.isActive()) {
             log.warn("用户已被禁用: userId={}", userId);
             throw new BusinessException(ResultCode.USER_INACTIVE);
         }
 
         // 验证Token版本
-        if (!jwtUtil.validateToken(token, userId, user.getTokenVersion())) {
+        if (!tokenVersion.equals(snapshot.getTokenVersion())) {
             log.warn("Token版本不匹配: userId={}, tokenVersion={}, userTokenVersion={}",
-                    userId, tokenVersion, user.getTokenVersion());
+                    userId, tokenVersion, snapshot.getTokenVersion());
             throw new BusinessException(ResultCode.TOKEN_INVALID_VERSION);
         }
 
@@ -102,6 +101,9 @@ public class JwtAuthenticationInterceptor implements HandlerInterceptor {
         request.setAttribute(USER_ID_ATTRIBUTE, userId);
         request.setAttribute(USERNAME_ATTRIBUTE, username);
 
+        // 更新活跃度索引（本地节流 + 异步写入）
+        userActivityService.touch(userId);
+
         log.debug("JWT认证通过: userId={}, username={}, uri={}", userId, username, request.getRequestURI());
 
         return true;
@@ -1,81 +1,54 @@
 package com.senyu.interceptor;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
+import com.senyu.accesslog.AccessLogRecorder;
+import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.DispatcherServlet;
 import org.springframework.web.servlet.HandlerInterceptor;
-import org.springframework.web.servlet.ModelAndView;
-
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.Map;
+import org.springframework.web.servlet.HandlerMapping;
 
 /**
  * 请求日志拦截器
+ * 请求结束时按采样规则把固定字段写入异步访问日志，不在请求线程上格式化和输出日志
+ * 被全局异常处理器处理的异常不会传给afterCompletion，从DispatcherServlet记录的请求属性中读取
  *
  * @author senyu
  */
-@Slf4j
 @Component
 public class LogInterceptor implements HandlerInterceptor {
 
-    private static final ThreadLocal<Long> START_TIME = new ThreadLocal<>();
+    private static final String START_NANOS_ATTRIBUTE = LogInterceptor.class.getName() + ".startNanos";
+
+    @Resource
+    private AccessLogRecorder accessLogRecorder;
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        START_TIME.set(System.currentTimeMillis());
-
-        // 记录请求信息
-        String method = request.getMethod();
-        String uri = request.getRequestURI();
-        String queryString = request.getQueryString();
-        String remoteAddr = getRemoteAddr(request);
-
-        Map<String, String> headers = new HashMap<>();
-        Enumeration<String> headerNames = request.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-            String headerName = headerNames.nextElement();
-            // 过滤敏感header
-            if (!headerName.toLowerCase().contains("authorization")) {
-                headers.put(headerName, request.getHeader(headerName));
-            }
-        }
-
-        log.info("请求开始 => Method: {}, URI: {}, QueryString: {}, RemoteAddr: {}, Headers: {}",
-                method, uri, queryString, remoteAddr, JSONUtil.toJsonStr(headers));
-
+        request.setAttribute(START_NANOS_ATTRIBUTE, System.nanoTime());
         return true;
     }
 
-    @Override
-    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
-                          ModelAndView modelAndView) {
-        // 预留扩展
-    }
-
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
                                Exception ex) {
-        Long startTime = START_TIME.get();
-        if (startTime != null) {
-            long executionTime = System.currentTimeMillis() - startTime;
-            String method = request.getMethod();
-            String uri = request.getRequestURI();
-            int status = response.getStatus();
-
-            if (ex != null) {
-                log.error("请求异常 => Method: {}, URI: {}, Status: {}, Time: {}ms, Exception: {}",
-                        method, uri, status, executionTime, ex.getMessage());
-            } else {
-                log.info("请求完成 => Method: {}, URI: {}, Status: {}, Time: {}ms",
-                        method, uri, status, executionTime);
-            }
+        if (!(request.getAttribute(START_NANOS_ATTRIBUTE) instanceof Long startNanos)) {
+            return;
+        }
+        long durationMicros = (System.nanoTime() - startNanos) / 1000;
+        String route = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        int status = response.getStatus();
+        Throwable error = ex != null ? ex
+                : (Throwable) request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE);
 
-            START_TIME.remove();
+        if (!accessLogRecorder.shouldRecord(route, status, durationMicros / 1000, error != null)) {
+            return;
         }
+        accessLogRecorder.record(request.getMethod(), request.getRequestURI(), route, status, durationMicros,
+                getRemoteAddr(request), request.getAttribute(JwtAuthenticationInterceptor.USER_ID_ATTRIBUTE),
+                error == null ? null : error.getClass().getSimpleName() + ": " + error.getMessage());
     }
 
     /**
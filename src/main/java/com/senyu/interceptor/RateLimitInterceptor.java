@@ -3,21 +3,23 @@ package com.senyu.interceptor;
 import cn.hutool.core.util.StrUtil;
 import com.senyu.annotation.RateLimit;
 import com.senyu.exception.BusinessException;
+import com.senyu.limiter.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
-import java.util.Collections;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 限流拦截器
+ * 令牌桶限流，桶容量为时间窗口内最大请求次数，按窗口长度匀速补充
  *
  * @author senyu
  */
@@ -25,24 +27,18 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class RateLimitInterceptor implements HandlerInterceptor {
 
+    private static final String KEY_INFIX = ":bucket:";
+
+    @Resource
+    private TokenBucketRateLimiter tokenBucketRateLimiter;
+
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
-
-    // Lua脚本实现原子性限流
-    private static final String LUA_SCRIPT =
-            "local key = KEYS[1]\n" +
-            "local limit = tonumber(ARGV[1])\n" +
-            "local expire = tonumber(ARGV[2])\n" +
-            "local current = tonumber(redis.call('get', key) or '0')\n" +
-            "if current + 1 > limit then\n" +
-            "    return 0\n" +
-            "else\n" +
-            "    redis.call('INCRBY', key, 1)\n" +
-            "    if current == 0 then\n" +
-            "        redis.call('EXPIRE', key, expire)\n" +
-            "    end\n" +
-            "    return current + 1\n" +
-            "end";
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 接口 -> 放行、限流计数器
+     */
+    private final Map<String, Counter[]> endpointCounters = new ConcurrentHashMap<>();
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
@@ -58,53 +54,63 @@ public class RateLimitInterceptor implements HandlerInterceptor {
         }
 
         String key = generateKey(request, rateLimit);
-        long count = rateLimit.count();
-        long time = rateLimit.time();
+        int count = rateLimit.count();
+        int time = rateLimit.time();
+        Counter[] counters = countersOf(handlerMethod);
 
+        boolean allowed;
         try {
-            Long result = redisTemplate.execute(
-                    RedisScript.of(LUA_SCRIPT, Long.class),
-                    Collections.singletonList(key),
-                    count,
-                    time
-            );
-
-            if (result == null || result == 0) {
-                log.warn("请求被限流，key: {}, limit: {}/{} seconds", key, count, time);
-                throw new BusinessException(429, "请求过于频繁，请稍后再试");
-            }
-
-            log.debug("限流检查通过，key: {}, 当前: {}, 限制: {}/{} seconds", key, result, count, time);
-            return true;
-
-        } catch (BusinessException e) {
-            throw e;
+            allowed = tokenBucketRateLimiter.tryAcquire(key, count, time);
         } catch (Exception e) {
             log.error("限流检查异常", e);
             // 限流异常时放行，保证可用性
-            return true;
+            allowed = true;
+        }
+
+        if (!allowed) {
+            counters[1].increment();
+            log.warn("请求被限流，key: {}, limit: {}/{} seconds", key, count, time);
+            throw new BusinessException(429, "请求过于频繁，请稍后再试");
         }
+
+        counters[0].increment();
+        return true;
+    }
+
+    private Counter[] countersOf(HandlerMethod handlerMethod) {
+        String endpoint = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+        return endpointCounters.computeIfAbsent(endpoint, name -> new Counter[]{
+                requestCounter(name, "allowed"),
+                requestCounter(name, "rejected")
+        });
+    }
+
+    private Counter requestCounter(String endpoint, String result) {
+        return Counter.builder("rate_limit.requests")
+                .description("限流检查次数")
+                .tag("endpoint", endpoint)
+                .tag("result", result)
+                .register(meterRegistry);
     }
 
     /**
      * 生成限流key
      */
     private String generateKey(HttpServletRequest request, RateLimit rateLimit) {
-        String key = rateLimit.key();
-        String uri = request.getRequestURI();
+        String prefix = rateLimit.key() + KEY_INFIX + request.getRequestURI();
 
         switch (rateLimit.limitType()) {
             case IP:
-                String ip = getRemoteAddr(request);
-                return String.format("%s:%s:%s", key, uri, ip);
+                return prefix + ':' + getRemoteAddr(request);
             case USER:
-                String userId = request.getHeader("userId");
-                if (StrUtil.isBlank(userId)) {
-                    userId = "anonymous";
+                // 优先使用JWT认证写入的用户ID，请求头可被客户端伪造
+                Object userId = request.getAttribute(JwtAuthenticationInterceptor.USER_ID_ATTRIBUTE);
+                if (userId == null) {
+                    userId = StrUtil.blankToDefault(request.getHeader("userId"), "anonymous");
                 }
-                return String.format("%s:%s:%s", key, uri, userId);
+                return prefix + ':' + userId;
             default:
-                return String.format("%s:%s", key, uri);
+                return prefix;
         }
     }
 
@@ -0,0 +1,162 @@
+package com.senyu.limiter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.senyu.config.FeedConfig;
+import com.senyu.serializer.LongRedisSerializer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 令牌桶限流器
+ * <ul>
+ *     <li>全局令牌桶：每个限流key一个Redis Hash（tokens, ts），由Lua脚本按Redis时钟补充并扣减令牌</li>
+ *     <li>本地预取：每次从全局桶批量预取一块令牌在本地消费，大部分请求不访问Redis；
+ *     预取的令牌短时间内有效，全局桶耗尽后本地在等待时间内直接拒绝</li>
+ * </ul>
+ * 限流容量较小时每次只预取一个令牌，与逐个请求访问Redis的精度相同
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class TokenBucketRateLimiter {
+
+    /**
+     * 返回值大于0为取得的令牌数，否则为下一个令牌补充所需的毫秒数的相反数
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = RedisScript.of(
+            "local capacity = tonumber(ARGV[1])\n" +
+            "local rate = tonumber(ARGV[2])\n" +
+            "local requested = tonumber(ARGV[3])\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n" +
+            "local tokens = tonumber(state[1])\n" +
+            "local ts = tonumber(state[2])\n" +
+            "if tokens == nil or ts == nil then\n" +
+            "    tokens = capacity\n" +
+            "    ts = now\n" +
+            "end\n" +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)\n" +
+            "local granted = math.min(requested, math.floor(tokens))\n" +
+            "tokens = tokens - granted\n" +
+            "redis.call('HSET', KEYS[1], 'tokens', tokens, 'ts', now)\n" +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000)\n" +
+            "if granted > 0 then\n" +
+            "    return granted\n" +
+            "end\n" +
+            "return -math.max(1, math.ceil((1 - tokens) / rate))",
+            Long.class);
+
+    /**
+     * 每次预取的令牌数为限流容量的1/LEASE_DIVISOR
+     */
+    private static final int LEASE_DIVISOR = 10;
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, LocalBucket> buckets;
+
+    private Counter leaseGrantedCounter;
+
+    private Counter leaseDeniedCounter;
+
+    @PostConstruct
+    public void init() {
+        buckets = Caffeine.newBuilder()
+                .maximumSize(feedConfig.getRateLimitLocalBuckets())
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        leaseGrantedCounter = leaseCounter("granted");
+        leaseDeniedCounter = leaseCounter("denied");
+    }
+
+    private Counter leaseCounter(String result) {
+        return Counter.builder("rate_limit.leases")
+                .description("从Redis全局令牌桶预取令牌的次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param key           限流key
+     * @param capacity      桶容量，即周期内允许的请求数
+     * @param periodSeconds 补满整个桶所需的秒数
+     * @return true-放行，false-限流
+     */
+    public boolean tryAcquire(String key, int capacity, int periodSeconds) {
+        LocalBucket bucket = buckets.get(key, k -> new LocalBucket());
+        synchronized (bucket) {
+            long now = System.currentTimeMillis();
+            if (bucket.permits > 0 && now < bucket.leaseExpiresAt) {
+                bucket.permits--;
+                return true;
+            }
+            if (now < bucket.deniedUntil) {
+                return false;
+            }
+
+            // 本地令牌用完，从全局桶预取一块；同一key的并发请求在此等待同一次预取
+            long leaseTtl = feedConfig.getRateLimitLeaseTtlMs();
+            long result = lease(key, capacity, periodSeconds, leaseSize(capacity));
+            if (result > 0) {
+                leaseGrantedCounter.increment();
+                bucket.permits = result - 1;
+                bucket.leaseExpiresAt = now + leaseTtl;
+                return true;
+            }
+            leaseDeniedCounter.increment();
+            bucket.permits = 0;
+            bucket.deniedUntil = now + Math.min(-result, leaseTtl);
+            return false;
+        }
+    }
+
+    private int leaseSize(int capacity) {
+        return Math.max(1, Math.min(capacity / LEASE_DIVISOR, feedConfig.getRateLimitLeaseMaxPermits()));
+    }
+
+    private long lease(String key, int capacity, int periodSeconds, int permits) {
+        double ratePerMillis = (double) capacity / (periodSeconds * 1000L);
+        Long result = redisTemplate.execute(ACQUIRE_SCRIPT,
+                StringRedisSerializer.UTF_8,
+                LongRedisSerializer.INSTANCE,
+                List.of(key),
+                String.valueOf(capacity),
+                String.valueOf(ratePerMillis),
+                String.valueOf(permits));
+        return result == null ? 0L : result;
+    }
+
+    /**
+     * 本地预取的令牌
+     */
+    private static final class LocalBucket {
+
+        private long permits;
+
+        private long leaseExpiresAt;
+
+        private long deniedUntil;
+    }
+}
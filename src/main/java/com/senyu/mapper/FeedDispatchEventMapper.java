@@ -0,0 +1,93 @@
+package com.senyu.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.senyu.entity.FeedDispatchEvent;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Feed分发事件Mapper
+ *
+ * @author senyu
+ */
+@Mapper
+public interface FeedDispatchEventMapper extends BaseMapper<FeedDispatchEvent> {
+
+    /**
+     * 锁定一批到期的事件（待分发或租约已过期的分发中事件）
+     * 需在事务中调用，SKIP LOCKED使多个中继实例互不阻塞
+     */
+    @Select("SELECT * FROM feed_dispatch_event " +
+            "WHERE status IN (0, 1) AND next_retry_at <= #{now} " +
+            "ORDER BY next_retry_at " +
+            "LIMIT #{limit} " +
+            "FOR UPDATE SKIP LOCKED")
+    List<FeedDispatchEvent> selectDueForUpdate(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * 批量认领事件，租约到期前不会被其他中继重复处理
+     */
+    @Update("<script>" +
+            "UPDATE feed_dispatch_event SET status = 1, next_retry_at = #{leaseUntil} " +
+            "WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            "</script>")
+    int claimBatch(@Param("ids") List<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 认领单个待分发事件（发布后的快速路径）
+     *
+     * @return 1-认领成功，0-已被中继认领
+     */
+    @Update("UPDATE feed_dispatch_event SET status = 1, next_retry_at = #{leaseUntil} " +
+            "WHERE id = #{id} AND status = 0")
+    int tryClaim(@Param("id") Long id, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 批量标记分发完成
+     * 只更新仍由本次认领持有的事件，租约过期后被其他中继重新认领的事件以新的认领结果为准
+     *
+     * @param leaseUntil 认领时写入的租约到期时间
+     */
+    @Update("<script>" +
+            "UPDATE feed_dispatch_event SET status = 2 " +
+            "WHERE status = 1 AND next_retry_at = #{leaseUntil} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>" +
+            "#{id}" +
+            "</foreach>" +
+            "</script>")
+    int markDone(@Param("ids") List<Long> ids, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * 分发失败，重试次数加一并延后处理；超过最大次数时标记为失败
+     * 与markDone相同，只更新仍由本次认领持有的事件
+     */
+    @Update("UPDATE feed_dispatch_event " +
+            "SET status = IF(retry_count + 1 >= #{maxRetries}, 3, 0), " +
+            "retry_count = retry_count + 1, " +
+            "next_retry_at = #{nextRetryAt} " +
+            "WHERE id = #{id} AND status = 1 AND next_retry_at = #{leaseUntil}")
+    int markRetry(@Param("id") Long id,
+                  @Param("leaseUntil") LocalDateTime leaseUntil,
+                  @Param("nextRetryAt") LocalDateTime nextRetryAt,
+                  @Param("maxRetries") int maxRetries);
+
+    /**
+     * 删除一批早于指定时间完成的事件
+     * 已完成事件的next_retry_at为最后一次认领的租约到期时间，可走(status, next_retry_at)索引
+     *
+     * @return 删除的行数
+     */
+    @Delete("DELETE FROM feed_dispatch_event " +
+            "WHERE status = 2 AND next_retry_at < #{before} " +
+            "LIMIT #{limit}")
+    int deleteDoneBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
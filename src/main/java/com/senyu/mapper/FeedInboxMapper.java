@@ -6,6 +6,7 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -17,15 +18,25 @@ import java.util.List;
 public interface FeedInboxMapper extends BaseMapper<FeedInbox> {
 
     /**
-     * 查询用户Feed流
+     * 查询用户Feed流，按(内容创建时间, 内容ID)降序，与时间线游标的排序一致
+     *
+     * @param userId       用户ID
+     * @param before       游标创建时间，为空时从最新开始
+     * @param beforePostId 游标内容ID，同一时间的内容只取ID更小的
+     * @param limit        数量上限
      */
-    @Select("SELECT * FROM feed_inbox " +
+    @Select("<script>" +
+            "SELECT * FROM feed_inbox " +
             "WHERE user_id = #{userId} " +
-            "<if test='maxId != null'> AND id &lt; #{maxId} </if>" +
-            "ORDER BY id DESC " +
-            "LIMIT #{limit}")
+            "<if test='before != null'>" +
+            " AND (created_at &lt; #{before} OR (created_at = #{before} AND post_id &lt; #{beforePostId}))" +
+            "</if>" +
+            " ORDER BY created_at DESC, post_id DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
     List<FeedInbox> selectUserFeed(@Param("userId") Long userId,
-                                    @Param("maxId") Long maxId,
+                                    @Param("before") LocalDateTime before,
+                                    @Param("beforePostId") Long beforePostId,
                                     @Param("limit") int limit);
 
     /**
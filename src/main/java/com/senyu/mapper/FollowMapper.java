@@ -29,11 +29,20 @@ public interface FollowMapper extends BaseMapper<Follow> {
     List<Long> selectFollowingIds(@Param("userId") Long userId);
 
     /**
-     * 查询活跃粉丝ID列表
+     * 按粉丝ID游标分页查询活跃粉丝ID
+     * 基于(followee_id, follower_id)索引做keyset分页，每页只需一次索引范围扫描
+     *
+     * @param userId         被关注者ID
+     * @param lastFollowerId 上一页最后一个粉丝ID，首页传0
+     * @param limit          每页数量
      */
     @Select("SELECT f.follower_id FROM follow f " +
             "INNER JOIN user u ON f.follower_id = u.id " +
-            "WHERE f.followee_id = #{userId} AND f.deleted = 0 " +
-            "AND u.is_active = 1 AND u.deleted = 0")
-    List<Long> selectActiveFollowerIds(@Param("userId") Long userId);
+            "WHERE f.followee_id = #{userId} AND f.follower_id > #{lastFollowerId} AND f.deleted = 0 " +
+            "AND u.is_active = 1 AND u.deleted = 0 " +
+            "ORDER BY f.follower_id " +
+            "LIMIT #{limit}")
+    List<Long> selectActiveFollowerIdsAfter(@Param("userId") Long userId,
+                                            @Param("lastFollowerId") Long lastFollowerId,
+                                            @Param("limit") int limit);
 }
@@ -1,12 +1,15 @@
 package com.senyu.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.senyu.counter.PostCounterDelta;
+import com.senyu.counter.PostCounts;
 import com.senyu.entity.Post;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -42,17 +45,82 @@ public interface PostMapper extends BaseMapper<Post> {
     int increaseViewCount(@Param("postId") Long postId);
 
     /**
-     * 根据用户ID列表查询最新内容
+     * 批量查询内容计数
      */
     @Select("<script>" +
-            "SELECT * FROM post " +
+            "SELECT id AS post_id, like_count, comment_count, share_count, view_count FROM post " +
+            "WHERE id IN " +
+            "<foreach collection='postIds' item='postId' open='(' separator=',' close=')'>" +
+            "#{postId}" +
+            "</foreach>" +
+            "</script>")
+    List<PostCounts> selectCountsByIds(@Param("postIds") List<Long> postIds);
+
+    /**
+     * 批量累加计数，按内容ID一次更新多行
+     */
+    int batchIncreaseCounters(@Param("list") List<PostCounterDelta> deltas);
+
+    /**
+     * 根据用户ID列表查询位于游标之后的最新内容（仅ID和创建时间）
+     * 按(创建时间, ID)降序，与时间线游标的排序一致
+     *
+     * @param userIds  用户ID列表
+     * @param before   游标创建时间，为空时从最新开始
+     * @param beforeId 游标内容ID，同一时间的内容只取ID更小的
+     * @param limit    数量上限
+     */
+    @Select("<script>" +
+            "SELECT id, created_at FROM post " +
             "WHERE user_id IN " +
             "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>" +
             "#{userId}" +
             "</foreach>" +
             " AND status = 1 AND deleted = 0 " +
+            "<if test='before != null'>" +
+            " AND (created_at &lt; #{before} OR (created_at = #{before} AND id &lt; #{beforeId}))" +
+            "</if>" +
+            " ORDER BY created_at DESC, id DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<Post> selectLatestByUserIds(@Param("userIds") List<Long> userIds,
+                                     @Param("before") LocalDateTime before,
+                                     @Param("beforeId") Long beforeId,
+                                     @Param("limit") int limit);
+
+    /**
+     * 查询最近发布的内容及其计数，用于重建热门排行
+     * 按(状态, 创建时间)索引范围扫描，扫描行数受limit限制
+     *
+     * @param since 发布时间下限
+     * @param limit 数量上限
+     */
+    @Select("SELECT id, like_count, comment_count, share_count, view_count, created_at FROM post " +
+            "WHERE status = 1 AND created_at >= #{since} AND deleted = 0 " +
             "ORDER BY created_at DESC " +
+            "LIMIT #{limit}")
+    List<Post> selectRecentForRanking(@Param("since") LocalDateTime since, @Param("limit") int limit);
+
+    /**
+     * 查询话题下位于游标之后的最新内容（仅ID和创建时间）
+     * 按(话题, 创建时间)索引倒序扫描，与时间线游标的排序一致
+     *
+     * @param topic    话题
+     * @param before   游标创建时间，为空时从最新开始
+     * @param beforeId 游标内容ID，同一时间的内容只取ID更小的
+     * @param limit    数量上限
+     */
+    @Select("<script>" +
+            "SELECT id, created_at FROM post " +
+            "WHERE topic = #{topic} AND status = 1 AND deleted = 0 " +
+            "<if test='before != null'>" +
+            " AND (created_at &lt; #{before} OR (created_at = #{before} AND id &lt; #{beforeId}))" +
+            "</if>" +
+            " ORDER BY created_at DESC, id DESC " +
             "LIMIT #{limit}" +
             "</script>")
-    List<Post> selectLatestByUserIds(@Param("userIds") List<Long> userIds, @Param("limit") int limit);
+    List<Post> selectLatestByTopic(@Param("topic") String topic,
+                                   @Param("before") LocalDateTime before,
+                                   @Param("beforeId") Long beforeId,
+                                   @Param("limit") int limit);
 }
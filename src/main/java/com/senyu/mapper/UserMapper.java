@@ -4,8 +4,11 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.senyu.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+
 /**
  * 用户Mapper
  *
@@ -31,4 +34,10 @@ public interface UserMapper extends BaseMapper<User> {
      */
     @Update("UPDATE user SET post_count = post_count + 1 WHERE id = #{userId}")
     int increasePostCount(@Param("userId") Long userId);
+
+    /**
+     * 查询粉丝数不小于指定值的用户ID，走follower_count索引
+     */
+    @Select("SELECT id FROM user WHERE follower_count >= #{minFollowerCount} AND deleted = 0")
+    List<Long> selectIdsByMinFollowerCount(@Param("minFollowerCount") int minFollowerCount);
 }
@@ -0,0 +1,249 @@
+package com.senyu.recommend;
+
+import com.senyu.config.FeedConfig;
+import com.senyu.entity.Post;
+import com.senyu.feed.FeedEntry;
+import com.senyu.feed.HotPostRanker;
+import com.senyu.feed.OutboxReader;
+import com.senyu.feed.SeenPostFilter;
+import com.senyu.service.FollowService;
+import com.senyu.service.PostService;
+import com.senyu.topic.TopicTrendTracker;
+import com.senyu.util.RedisKeyUtil;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 推荐流水线
+ * <ol>
+ *     <li>召回：热门排行、用户兴趣话题的话题时间线、关注的人所关注的作者（二度关注）的发件箱</li>
+ *     <li>去重过滤：合并各来源的内容ID，在读取内容详情前排除用户已读的内容，
+ *     再排除自己和已关注作者的内容（已在关注Feed流中）</li>
+ *     <li>打分：基于缓存中的内容详情与计数，在进程内做线性打分</li>
+ *     <li>截断：小顶堆保留得分最高的K条</li>
+ * </ol>
+ * 各来源只读取Redis中的排行与时间线，不扫描内容表
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class RecommendPipeline {
+
+    /**
+     * 参与召回的兴趣话题数
+     */
+    private static final int INTEREST_TOPICS = 5;
+
+    /**
+     * 二度关注召回时抽样的关注人数，以及每人抽样的关注数
+     */
+    private static final int SAMPLED_FOLLOWEES = 20;
+
+    private static final int SAMPLED_FOLLOWINGS_PER_FOLLOWEE = 50;
+
+    /**
+     * 二度关注召回的作者数
+     */
+    private static final int SOCIAL_AUTHORS = 30;
+
+    @Resource
+    private HotPostRanker hotPostRanker;
+
+    @Resource
+    private OutboxReader outboxReader;
+
+    @Resource
+    private UserInterestTracker userInterestTracker;
+
+    @Resource
+    private SeenPostFilter seenPostFilter;
+
+    @Resource
+    private FollowService followService;
+
+    @Resource
+    private PostService postService;
+
+    @Resource
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Timer generateTimer;
+
+    private DistributionSummary candidateSummary;
+
+    @PostConstruct
+    public void init() {
+        generateTimer = Timer.builder("feed.recommend.generate.duration")
+                .description("生成一次推荐结果的耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        candidateSummary = DistributionSummary.builder("feed.recommend.candidates")
+                .description("去重后参与打分的候选内容数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为用户生成推荐结果
+     *
+     * @return 按推荐得分降序的条目，分值为名次的倒数（首条最大），可直接用作游标分页
+     */
+    public List<FeedEntry> recommend(Long userId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            int perSource = feedConfig.getRecommendCandidatesPerSource();
+            Set<Long> following = new HashSet<>(followService.getFollowingIds(userId));
+            Map<String, Double> interests = userInterestTracker.topTopics(userId, INTEREST_TOPICS);
+            Map<Long, Integer> socialCounts = secondDegreeAuthors(userId, following);
+
+            // 1. 召回，按内容ID去重
+            Set<Long> candidateIds = new LinkedHashSet<>(hotPostRanker.topIds(0, perSource));
+            if (!interests.isEmpty()) {
+                int perTopic = Math.max(1, perSource / interests.size());
+                for (String topic : interests.keySet()) {
+                    addAll(candidateIds, outboxReader.readPage(RedisKeyUtil.getTopicFeedKey(topic), null, perTopic));
+                }
+            }
+            if (!socialCounts.isEmpty()) {
+                addAll(candidateIds, outboxReader.readLatest(new ArrayList<>(socialCounts.keySet()), null, perSource));
+            }
+
+            // 2. 排除已读内容后读取缓存中的内容详情与计数，过滤自己和已关注作者的内容
+            candidateIds.removeAll(seenPostFilter.seen(userId, candidateIds));
+            List<Post> posts = postService.getPostsByIds(new ArrayList<>(candidateIds));
+            candidateSummary.record(posts.size());
+
+            // 3. 打分，小顶堆保留得分最高的K条
+            int k = feedConfig.getRecommendCacheSize();
+            double maxInterest = interests.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+            LocalDateTime now = LocalDateTime.now();
+            PriorityQueue<ScoredPost> heap = new PriorityQueue<>(k + 1, ScoredPost.BY_SCORE);
+            for (Post post : posts) {
+                if (userId.equals(post.getUserId()) || following.contains(post.getUserId())) {
+                    continue;
+                }
+                String topic = TopicTrendTracker.normalize(post.getTopic());
+                double interest = maxInterest > 0 && topic != null
+                        ? interests.getOrDefault(topic, 0.0) / maxInterest : 0;
+                int social = socialCounts.getOrDefault(post.getUserId(), 0);
+                heap.offer(new ScoredPost(post.getId(), RecommendScorer.score(post, interest, social, now)));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+            }
+
+            // 4. 按得分降序排列，分值取名次的倒数
+            List<ScoredPost> ranked = new ArrayList<>(heap);
+            ranked.sort(ScoredPost.BY_SCORE.reversed());
+            List<FeedEntry> entries = new ArrayList<>(ranked.size());
+            for (int i = 0; i < ranked.size(); i++) {
+                entries.add(new FeedEntry(ranked.get(i).postId, ranked.size() - i));
+            }
+            log.debug("用户{}推荐结果生成完成，候选{}条，保留{}条", userId, posts.size(), entries.size());
+            return entries;
+        } finally {
+            sample.stop(generateTimer);
+        }
+    }
+
+    /**
+     * 二度关注：抽样部分关注的人，各自抽样其关注列表缓存，统计每个作者被多少个关注的人关注
+     * 关注列表未缓存的人直接跳过，不回源数据库
+     *
+     * @return 作者ID -> 关注了该作者的关注人数，只保留人数最多的若干作者
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Integer> secondDegreeAuthors(Long userId, Set<Long> following) {
+        if (following.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> followees = new ArrayList<>(following);
+        if (followees.size() > SAMPLED_FOLLOWEES) {
+            Collections.shuffle(followees);
+            followees = followees.subList(0, SAMPLED_FOLLOWEES);
+        }
+
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) idRedisTemplate.getKeySerializer();
+        List<Long> sampled = followees;
+        List<Object> results = idRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long followeeId : sampled) {
+                connection.setCommands().sRandMember(
+                        keySerializer.serialize(RedisKeyUtil.getUserFollowingKey(followeeId)),
+                        SAMPLED_FOLLOWINGS_PER_FOLLOWEE);
+            }
+            return null;
+        });
+
+        Map<Long, Integer> counts = new HashMap<>();
+        for (Object result : results) {
+            if (result instanceof Collection<?> authorIds) {
+                for (Object authorId : authorIds) {
+                    if (authorId instanceof Long id && !id.equals(userId) && !following.contains(id)) {
+                        counts.merge(id, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        if (counts.size() <= SOCIAL_AUTHORS) {
+            return counts;
+        }
+        Map<Long, Integer> top = new HashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+                .limit(SOCIAL_AUTHORS)
+                .forEach(entry -> top.put(entry.getKey(), entry.getValue()));
+        return top;
+    }
+
+    private static void addAll(Set<Long> candidateIds, List<FeedEntry> entries) {
+        for (FeedEntry entry : entries) {
+            candidateIds.add(entry.getPostId());
+        }
+    }
+
+    /**
+     * 打分后的候选内容
+     */
+    private static final class ScoredPost {
+
+        private static final Comparator<ScoredPost> BY_SCORE = Comparator
+                .comparingDouble((ScoredPost scored) -> scored.score)
+                .thenComparingLong(scored -> scored.postId);
+
+        private final long postId;
+
+        private final double score;
+
+        private ScoredPost(long postId, double score) {
+            this.postId = postId;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.senyu.recommend;
+
+import com.senyu.counter.PostCounterType;
+import com.senyu.entity.Post;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * 推荐候选的线性打分
+ * 各特征先归一化到[0, 1]再加权求和：话题兴趣、社交关系、互动热度、新鲜度
+ *
+ * @author senyu
+ */
+final class RecommendScorer {
+
+    private static final double INTEREST_WEIGHT = 0.35;
+
+    private static final double SOCIAL_WEIGHT = 0.25;
+
+    private static final double POPULARITY_WEIGHT = 0.25;
+
+    private static final double FRESHNESS_WEIGHT = 0.15;
+
+    /**
+     * 互动得分达到该值时热度特征取满分，按对数归一化
+     */
+    private static final double POPULARITY_SATURATION = Math.log1p(1000);
+
+    /**
+     * 关注的人中有该数量关注了作者时社交特征取满分
+     */
+    private static final double SOCIAL_SATURATION = 3.0;
+
+    /**
+     * 新鲜度的时间常数（小时），发布后每经过该时长新鲜度衰减为原来的1/e
+     */
+    private static final double FRESHNESS_HOURS = 24.0;
+
+    private RecommendScorer() {
+    }
+
+    /**
+     * 计算候选内容的推荐得分
+     *
+     * @param post        带计数的内容
+     * @param interest    用户对内容话题的兴趣，已按用户最大兴趣归一化
+     * @param socialCount 关注的人中关注了作者的人数
+     * @param now         当前时间
+     */
+    static double score(Post post, double interest, int socialCount, LocalDateTime now) {
+        double engagement = count(post.getLikeCount()) * PostCounterType.LIKE.getHotWeight()
+                + count(post.getCommentCount()) * PostCounterType.COMMENT.getHotWeight()
+                + count(post.getShareCount()) * PostCounterType.SHARE.getHotWeight()
+                + count(post.getViewCount()) * PostCounterType.VIEW.getHotWeight();
+        double popularity = Math.min(1.0, Math.log1p(engagement) / POPULARITY_SATURATION);
+        double social = Math.min(1.0, socialCount / SOCIAL_SATURATION);
+        double freshness = 0;
+        if (post.getCreatedAt() != null) {
+            double ageHours = Math.max(0, Duration.between(post.getCreatedAt(), now).toMinutes() / 60.0);
+            freshness = Math.exp(-ageHours / FRESHNESS_HOURS);
+        }
+        return INTEREST_WEIGHT * interest
+                + SOCIAL_WEIGHT * social
+                + POPULARITY_WEIGHT * popularity
+                + FRESHNESS_WEIGHT * freshness;
+    }
+
+    private static long count(Integer value) {
+        return value == null ? 0L : Math.max(0, value);
+    }
+}
@@ -0,0 +1,102 @@
+package com.senyu.recommend;
+
+import com.senyu.counter.PostCounterType;
+import com.senyu.event.PostPublishedEvent;
+import com.senyu.topic.TopicTrendTracker;
+import com.senyu.util.RedisKeyUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户兴趣话题
+ * 用户点赞、发布内容时按互动权重累加到内容所属话题，每个用户只保留权重最高的若干话题
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class UserInterestTracker {
+
+    /**
+     * 每个用户保留的话题数
+     */
+    private static final int MAX_TOPICS = 50;
+
+    /**
+     * 发布内容计入的兴趣权重，点赞按{@link PostCounterType#LIKE}的热度权重计入
+     */
+    private static final double PUBLISH_WEIGHT = 10.0;
+
+    /**
+     * 用户不再互动后兴趣保留的时长
+     */
+    private static final Duration INTEREST_TTL = Duration.ofDays(30);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 发布事务提交后把话题计入作者的兴趣
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostPublished(PostPublishedEvent event) {
+        record(event.getPost().getUserId(), event.getPost().getTopic(), PUBLISH_WEIGHT);
+    }
+
+    /**
+     * 用户点赞内容
+     */
+    public void onLiked(Long userId, String topic) {
+        record(userId, topic, PostCounterType.LIKE.getHotWeight());
+    }
+
+    /**
+     * 读取用户权重最高的话题
+     *
+     * @return 话题 -> 权重，按权重降序
+     */
+    public Map<String, Double> topTopics(Long userId, int count) {
+        Set<TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(RedisKeyUtil.getUserInterestKey(userId), 0, count - 1);
+        Map<String, Double> topics = new LinkedHashMap<>();
+        if (tuples != null) {
+            for (TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    topics.put(tuple.getValue(), tuple.getScore());
+                }
+            }
+        }
+        return topics;
+    }
+
+    private void record(Long userId, String topic, double weight) {
+        String normalized = TopicTrendTracker.normalize(topic);
+        if (userId == null || normalized == null) {
+            return;
+        }
+        String key = RedisKeyUtil.getUserInterestKey(userId);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection conn = (StringRedisConnection) connection;
+                conn.zIncrBy(key, weight, normalized);
+                conn.zRemRange(key, 0, -(MAX_TOPICS + 1));
+                conn.expire(key, INTEREST_TTL.toSeconds());
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("记录用户兴趣失败，用户ID：{}，话题：{}", userId, normalized, e);
+        }
+    }
+}
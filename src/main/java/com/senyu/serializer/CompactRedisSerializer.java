@@ -0,0 +1,72 @@
+package com.senyu.serializer;
+
+import com.senyu.entity.Post;
+import com.senyu.entity.User;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis值序列化器
+ * 高频缓存的实体（内容、用户）使用紧凑二进制编码，不再携带类名和字段名；
+ * 其它类型委托给原有的JSON序列化器。二进制数据以0x00开头，JSON不可能以该字节开头，
+ * 因此升级前写入的JSON缓存仍可正常读取
+ *
+ * @author senyu
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = 0x00;
+
+    private static final byte TYPE_POST = 1;
+
+    private static final byte TYPE_USER = 2;
+
+    private static final int HEADER_BYTES = 2;
+
+    private final RedisSerializer<Object> fallback;
+
+    public CompactRedisSerializer(RedisSerializer<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value instanceof Post post) {
+            BinaryWriter writer = header(TYPE_POST, 128);
+            PostCodec.write(writer, post);
+            return writer.toByteArray();
+        }
+        if (value instanceof User user) {
+            BinaryWriter writer = header(TYPE_USER, 192);
+            UserCodec.write(writer, user);
+            return writer.toByteArray();
+        }
+        return fallback.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return fallback.deserialize(bytes);
+        }
+        if (bytes.length < HEADER_BYTES) {
+            throw new SerializationException("二进制数据不完整");
+        }
+        BinaryReader reader = new BinaryReader(bytes, HEADER_BYTES);
+        return switch (bytes[1]) {
+            case TYPE_POST -> PostCodec.read(reader);
+            case TYPE_USER -> UserCodec.read(reader);
+            default -> throw new SerializationException("未知的二进制类型：" + bytes[1]);
+        };
+    }
+
+    private static BinaryWriter header(byte type, int initialCapacity) {
+        BinaryWriter writer = new BinaryWriter(initialCapacity);
+        writer.writeByte(MAGIC);
+        writer.writeByte(type);
+        return writer;
+    }
+}
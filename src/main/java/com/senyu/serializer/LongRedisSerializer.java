@@ -0,0 +1,46 @@
+package com.senyu.serializer;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ID序列化器，按十进制字符串存储
+ * 与原JSON序列化器对Long的输出一致，已有的时间线、集合数据无需迁移
+ *
+ * @author senyu
+ */
+public class LongRedisSerializer implements RedisSerializer<Long> {
+
+    public static final LongRedisSerializer INSTANCE = new LongRedisSerializer();
+
+    @Override
+    public byte[] serialize(Long value) throws SerializationException {
+        return value == null ? null : Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public Long deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        long value = 0;
+        int i = 0;
+        boolean negative = bytes[0] == '-';
+        if (negative) {
+            i = 1;
+        }
+        if (i == bytes.length) {
+            throw new SerializationException("ID格式错误");
+        }
+        for (; i < bytes.length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new SerializationException("ID格式错误：" + new String(bytes, StandardCharsets.US_ASCII));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,136 @@
+package com.senyu.serializer;
+
+import com.senyu.entity.Post;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static com.senyu.serializer.BinaryReader.has;
+
+/**
+ * 内容实体的二进制编码
+ * 格式：版本号 + 字段存在位图 + 按固定顺序排列的非空字段；新增字段只能追加在末尾并提升版本号
+ *
+ * @author senyu
+ */
+final class PostCodec {
+
+    private static final int VERSION = 1;
+
+    private PostCodec() {
+    }
+
+    static void write(BinaryWriter writer, Post post) {
+        writer.writeByte(VERSION);
+        writer.writeVarLong(BinaryWriter.presence(
+                post.getId(), post.getUserId(), post.getContent(), post.getImages(), post.getVideoUrl(),
+                post.getTopic(), post.getLikeCount(), post.getCommentCount(), post.getShareCount(),
+                post.getViewCount(), post.getStatus(), post.getCreatedAt(), post.getUpdatedAt(), post.getDeleted()));
+        if (post.getId() != null) {
+            writer.writeSignedVarLong(post.getId());
+        }
+        if (post.getUserId() != null) {
+            writer.writeSignedVarLong(post.getUserId());
+        }
+        if (post.getContent() != null) {
+            writer.writeString(post.getContent());
+        }
+        if (post.getImages() != null) {
+            // 库中历史数据可能含null元素，编码时跳过，不改变格式
+            List<String> images = post.getImages().stream().filter(Objects::nonNull).toList();
+            writer.writeVarLong(images.size());
+            for (String image : images) {
+                writer.writeString(image);
+            }
+        }
+        if (post.getVideoUrl() != null) {
+            writer.writeString(post.getVideoUrl());
+        }
+        if (post.getTopic() != null) {
+            writer.writeString(post.getTopic());
+        }
+        if (post.getLikeCount() != null) {
+            writer.writeSignedVarLong(post.getLikeCount());
+        }
+        if (post.getCommentCount() != null) {
+            writer.writeSignedVarLong(post.getCommentCount());
+        }
+        if (post.getShareCount() != null) {
+            writer.writeSignedVarLong(post.getShareCount());
+        }
+        if (post.getViewCount() != null) {
+            writer.writeSignedVarLong(post.getViewCount());
+        }
+        if (post.getStatus() != null) {
+            writer.writeSignedVarLong(post.getStatus());
+        }
+        if (post.getCreatedAt() != null) {
+            writer.writeDateTime(post.getCreatedAt());
+        }
+        if (post.getUpdatedAt() != null) {
+            writer.writeDateTime(post.getUpdatedAt());
+        }
+        if (post.getDeleted() != null) {
+            writer.writeSignedVarLong(post.getDeleted());
+        }
+    }
+
+    static Post read(BinaryReader reader) {
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new SerializationException("不支持的内容编码版本：" + version);
+        }
+        long presence = reader.readVarLong();
+        Post post = new Post();
+        if (has(presence, 0)) {
+            post.setId(reader.readSignedVarLong());
+        }
+        if (has(presence, 1)) {
+            post.setUserId(reader.readSignedVarLong());
+        }
+        if (has(presence, 2)) {
+            post.setContent(reader.readString());
+        }
+        if (has(presence, 3)) {
+            int size = (int) reader.readVarLong();
+            List<String> images = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                images.add(reader.readString());
+            }
+            post.setImages(images);
+        }
+        if (has(presence, 4)) {
+            post.setVideoUrl(reader.readString());
+        }
+        if (has(presence, 5)) {
+            post.setTopic(reader.readString());
+        }
+        if (has(presence, 6)) {
+            post.setLikeCount((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 7)) {
+            post.setCommentCount((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 8)) {
+            post.setShareCount((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 9)) {
+            post.setViewCount((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 10)) {
+            post.setStatus((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 11)) {
+            post.setCreatedAt(reader.readDateTime());
+        }
+        if (has(presence, 12)) {
+            post.setUpdatedAt(reader.readDateTime());
+        }
+        if (has(presence, 13)) {
+            post.setDeleted((int) reader.readSignedVarLong());
+        }
+        return post;
+    }
+}
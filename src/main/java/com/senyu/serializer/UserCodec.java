@@ -0,0 +1,141 @@
+package com.senyu.serializer;
+
+import com.senyu.entity.User;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import static com.senyu.serializer.BinaryReader.has;
+
+/**
+ * 用户实体的二进制编码
+ * 格式：版本号 + 字段存在位图 + 按固定顺序排列的非空字段；新增字段只能追加在末尾并提升版本号
+ *
+ * @author senyu
+ */
+final class UserCodec {
+
+    private static final int VERSION = 1;
+
+    private UserCodec() {
+    }
+
+    static void write(BinaryWriter writer, User user) {
+        writer.writeByte(VERSION);
+        writer.writeVarLong(BinaryWriter.presence(
+                user.getId(), user.getUsername(), user.getPassword(), user.getEmail(), user.getPhone(),
+                user.getNickname(), user.getAvatar(), user.getBio(), user.getFollowerCount(),
+                user.getFollowingCount(), user.getPostCount(), user.getIsActive(), user.getTokenVersion(),
+                user.getLastLoginAt(), user.getCreatedAt(), user.getUpdatedAt(), user.getDeleted()));
+        if (user.getId() != null) {
+            writer.writeSignedVarLong(user.getId());
+        }
+        if (user.getUsername() != null) {
+            writer.writeString(user.getUsername());
+        }
+        if (user.getPassword() != null) {
+            writer.writeString(user.getPassword());
+        }
+        if (user.getEmail() != null) {
+            writer.writeString(user.getEmail());
+        }
+        if (user.getPhone() != null) {
+            writer.writeString(user.getPhone());
+        }
+        if (user.getNickname() != null) {
+            writer.writeString(user.getNickname());
+        }
+        if (user.getAvatar() != null) {
+            writer.writeString(user.getAvatar());
+        }
+        if (user.getBio() != null) {
+            writer.writeString(user.getBio());
+        }
+        if (user.getFollowerCount() != null) {
+            writer.writeSignedVarLong(user.getFollowerCount());
+        }
+        if (user.getFollowingCount() != null) {
+            writer.writeSignedVarLong(user.getFollowingCount());
+        }
+        if (user.getPostCount() != null) {
+            writer.writeSignedVarLong(user.getPostCount());
+        }
+        if (user.getIsActive() != null) {
+            writer.writeByte(user.getIsActive() ? 1 : 0);
+        }
+        if (user.getTokenVersion() != null) {
+            writer.writeSignedVarLong(user.getTokenVersion());
+        }
+        if (user.getLastLoginAt() != null) {
+            writer.writeDateTime(user.getLastLoginAt());
+        }
+        if (user.getCreatedAt() != null) {
+            writer.writeDateTime(user.getCreatedAt());
+        }
+        if (user.getUpdatedAt() != null) {
+            writer.writeDateTime(user.getUpdatedAt());
+        }
+        if (user.getDeleted() != null) {
+            writer.writeSignedVarLong(user.getDeleted());
+        }
+    }
+
+    static User read(BinaryReader reader) {
+        int version = reader.readByte();
+        if (version != VERSION) {
+            throw new SerializationException("不支持的用户编码版本：" + version);
+        }
+        long presence = reader.readVarLong();
+        User user = new User();
+        if (has(presence, 0)) {
+            user.setId(reader.readSignedVarLong());
+        }
+        if (has(presence, 1)) {
+            user.setUsername(reader.readString());
+        }
+        if (has(presence, 2)) {
+            user.setPassword(reader.readString());
+        }
+        if (has(presence, 3)) {
+            user.setEmail(reader.readString());
+        }
+        if (has(presence, 4)) {
+            user.setPhone(reader.readString());
+        }
+        if (has(presence, 5)) {
+            user.setNickname(reader.readString());
+        }
+        if (has(presence, 6)) {
+            user.setAvatar(reader.readString());
+        }
+        if (has(presence, 7)) {
+            user.setBio(reader.readString());
+        }
+        if (has(presence, 8)) {
+            user.setFollowerCount((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 9)) {
+            user.setFollowingCount((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 10)) {
+            user.setPostCount((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 11)) {
+            user.setIsActive(reader.readByte() != 0);
+        }
+        if (has(presence, 12)) {
+            user.setTokenVersion((int) reader.readSignedVarLong());
+        }
+        if (has(presence, 13)) {
+            user.setLastLoginAt(reader.readDateTime());
+        }
+        if (has(presence, 14)) {
+            user.setCreatedAt(reader.readDateTime());
+        }
+        if (has(presence, 15)) {
+            user.setUpdatedAt(reader.readDateTime());
+        }
+        if (has(presence, 16)) {
+            user.setDeleted((int) reader.readSignedVarLong());
+        }
+        return user;
+    }
+}
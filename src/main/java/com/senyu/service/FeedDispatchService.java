@@ -0,0 +1,196 @@
+package com.senyu.service;
+
+import com.senyu.config.FeedConfig;
+import com.senyu.entity.Post;
+import com.senyu.event.PostPublishedEvent;
+import com.senyu.mapper.FeedDispatchEventMapper;
+import com.senyu.strategy.impl.HybridFeedStrategy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feed分发服务
+ * 内容发布事务提交后，将分发任务投递到有界队列，由分发线程池完成扇出；
+ * 分发结果回写到分发事件表，失败或进程中断的事件由FeedDispatchRelay补偿
+ *
+ * @author senyu
+ */
+@Slf4j
+@Service
+public class FeedDispatchService {
+
+    @Resource
+    private HybridFeedStrategy hybridFeedStrategy;
+
+    @Resource
+    private FeedDispatchEventMapper feedDispatchEventMapper;
+
+    @Resource(name = "feedDispatchExecutor")
+    private ThreadPoolTaskExecutor feedDispatchExecutor;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Counter successCounter;
+
+    private Counter failedCounter;
+
+    private Counter retryCounter;
+
+    private Counter rejectedCounter;
+
+    private Timer queueWaitTimer;
+
+    private Timer dispatchTimer;
+
+    @PostConstruct
+    public void init() {
+        successCounter = Counter.builder("feed.dispatch.tasks")
+                .tag("result", "success")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("feed.dispatch.tasks")
+                .tag("result", "failed")
+                .register(meterRegistry);
+        retryCounter = Counter.builder("feed.dispatch.retries")
+                .description("分发失败、延后交由中继重试的次数")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("feed.dispatch.rejected")
+                .description("队列已满被拒绝、由调用线程执行的任务数")
+                .register(meterRegistry);
+        queueWaitTimer = Timer.builder("feed.dispatch.queue.wait")
+                .description("任务在队列中的等待时间")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        dispatchTimer = Timer.builder("feed.dispatch.duration")
+                .description("单条内容扇出耗时")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("feed.dispatch.queue.size", feedDispatchExecutor,
+                        executor -> executor.getThreadPoolExecutor().getQueue().size())
+                .description("分发队列积压任务数")
+                .register(meterRegistry);
+        Gauge.builder("feed.dispatch.active", feedDispatchExecutor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("正在执行分发的线程数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 发布事务提交后的快速路径：认领分发事件并投递分发任务，未开启事务时直接投递
+     * 认领失败说明事件已被中继接管，此时不再重复分发
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostPublished(PostPublishedEvent event) {
+        Long eventId = event.getDispatchEventId();
+        execute(event.getPost(), () -> {
+            LocalDateTime leaseUntil = leaseUntil();
+            if (feedDispatchEventMapper.tryClaim(eventId, leaseUntil) == 0) {
+                log.debug("分发事件已被中继认领，跳过快速路径，事件ID：{}", eventId);
+                return;
+            }
+            boolean success = dispatch(event.getPost());
+            if (success) {
+                feedDispatchEventMapper.markDone(List.of(eventId), leaseUntil);
+            } else {
+                markRetry(eventId, 0, leaseUntil);
+            }
+        });
+    }
+
+    /**
+     * 投递分发任务，返回分发结果
+     * 供中继批量分发并等待整批完成
+     */
+    public CompletableFuture<Boolean> dispatchAsync(Post post) {
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        execute(post, () -> {
+            try {
+                future.complete(dispatch(post));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 分发失败的事件按指数退避延后，交由中继重试
+     *
+     * @param eventId    分发事件ID
+     * @param retryCount 已重试次数
+     * @param leaseUntil 认领时写入的租约到期时间
+     */
+    public void markRetry(Long eventId, int retryCount, LocalDateTime leaseUntil) {
+        retryCounter.increment();
+        long delaySeconds = feedConfig.getRelayRetryDelaySeconds() << Math.min(retryCount, 10);
+        if (feedDispatchEventMapper.markRetry(eventId, leaseUntil, LocalDateTime.now().plusSeconds(delaySeconds),
+                feedConfig.getRelayMaxRetries()) == 0) {
+            log.warn("分发事件租约已过期并被重新认领，忽略本次失败结果，事件ID：{}", eventId);
+        }
+    }
+
+    /**
+     * 计算认领事件的租约到期时间
+     * 截断到秒，与DATETIME列的精度一致，完成时按该值校验是否仍持有租约
+     */
+    public LocalDateTime leaseUntil() {
+        return LocalDateTime.now().plusSeconds(feedConfig.getRelayLeaseSeconds()).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * 提交到分发线程池
+     * 队列已满时在调用线程执行，以背压的方式限制发布速率
+     */
+    private void execute(Post post, Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            feedDispatchExecutor.execute(() -> {
+                queueWaitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                task.run();
+            });
+        } catch (TaskRejectedException e) {
+            rejectedCounter.increment();
+            log.warn("Feed分发队列已满，由当前线程执行分发，内容ID：{}", post.getId());
+            task.run();
+        }
+    }
+
+    /**
+     * 执行一次分发，失败时不在分发线程内等待重试，由调用方转交中继按退避时间重试，
+     * 避免Redis或数据库故障期间分发线程全部阻塞在退避上
+     *
+     * @return 是否分发成功
+     */
+    public boolean dispatch(Post post) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            hybridFeedStrategy.dispatchFeed(post);
+            successCounter.increment();
+            return true;
+        } catch (Exception e) {
+            failedCounter.increment();
+            log.error("分发Feed流失败，交由中继重试，内容ID：{}", post.getId(), e);
+            return false;
+        } finally {
+            sample.stop(dispatchTimer);
+        }
+    }
+}
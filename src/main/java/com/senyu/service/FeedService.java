@@ -1,21 +1,30 @@
 package com.senyu.service;
 
-import cn.hutool.core.collection.CollUtil;
+import com.senyu.cache.SingleFlightCacheLoader;
 import com.senyu.common.PageResult;
+import com.senyu.common.ResultCode;
 import com.senyu.config.FeedConfig;
-import com.senyu.entity.FeedInbox;
 import com.senyu.entity.Post;
+import com.senyu.exception.BusinessException;
+import com.senyu.feed.FeedCursor;
+import com.senyu.feed.FeedEntry;
+import com.senyu.feed.FeedMerger;
+import com.senyu.feed.OutboxReader;
+import com.senyu.feed.SeenPostFilter;
+import com.senyu.feed.TimelineWriter;
 import com.senyu.mapper.FeedInboxMapper;
 import com.senyu.mapper.PostMapper;
+import com.senyu.recommend.RecommendPipeline;
+import com.senyu.topic.TopicTrendTracker;
 import com.senyu.util.RedisKeyUtil;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -41,159 +50,295 @@ public class FeedService {
     private PostService postService;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private RedisTemplate<String, Long> idRedisTemplate;
 
     @Resource
     private FeedConfig feedConfig;
 
+    @Resource
+    private TimelineWriter timelineWriter;
+
+    @Resource
+    private OutboxReader outboxReader;
+
+    @Resource
+    private RecommendPipeline recommendPipeline;
+
+    @Resource
+    private SeenPostFilter seenPostFilter;
+
+    @Resource
+    private SingleFlightCacheLoader cacheLoader;
+
     /**
-     * 获取用户Feed流（推模式）
-     * 从用户的收件箱获取Feed
+     * 获取用户Feed流（混合模式）
+     * 收件箱ZSet（推模式写入）与关注的拉模式作者的发件箱按时间k路归并，
+     * 游标由上一页最后一条的(分值, 内容ID)编码而成，各读取路径边界一致，翻页不重不漏
      */
-    public PageResult<Post> getUserFeed(Long userId, Long maxId, Integer pageSize) {
-        log.info("获取用户Feed流，用户ID：{}，maxId：{}", userId, maxId);
+    public PageResult<Post> getUserFeed(Long userId, String cursorToken, Integer pageSize) {
+        log.debug("获取用户Feed流，用户ID：{}，游标：{}", userId, cursorToken);
+        FeedCursor cursor = FeedCursor.decode(cursorToken);
 
         if (pageSize == null || pageSize <= 0) {
             pageSize = feedConfig.getPageSize();
         }
 
-        List<Long> postIds = new ArrayList<>();
+        List<Long> followingIds = followService.getFollowingIds(userId);
 
-        // 1. 先尝试从Redis缓存获取
-        String feedKey = RedisKeyUtil.getUserFeedKey(userId);
-        Long cacheSize = redisTemplate.opsForZSet().size(feedKey);
+        // 1. 读取收件箱：先Redis时间线，缺失或已翻过缓存范围时回源数据库
+        List<FeedEntry> inbox = readInbox(userId, cursor, pageSize);
 
-        if (cacheSize != null && cacheSize > 0) {
-            log.info("从Redis缓存获取Feed流");
-            postIds = getPostIdsFromCache(feedKey, maxId, pageSize);
+        // 2. 合并拉模式作者的发件箱；收件箱已读完时退化为从全部关注人的发件箱拉取
+        List<FeedEntry> entries;
+        if (inbox.isEmpty()) {
+            log.debug("收件箱为空，使用拉模式获取关注人的最新内容");
+            entries = pullFeedFromFollowing(followingIds, cursor, pageSize);
+        } else {
+            List<Long> pullAuthorIds = filterPullAuthors(followingIds);
+            List<FeedEntry> pulled = pullAuthorIds.isEmpty()
+                    ? List.of() : outboxReader.readLatest(pullAuthorIds, cursor, pageSize);
+            entries = pulled.isEmpty() ? inbox : FeedMerger.merge(List.of(inbox, pulled), pageSize);
         }
 
-        // 2. 缓存未命中或数据不足，从数据库获取
-        if (postIds.isEmpty()) {
-            log.info("缓存未命中，从数据库获取Feed流");
-            postIds = feedInboxMapper.selectUserFeed(userId, maxId, pageSize)
-                    .stream()
-                    .map(FeedInbox::getPostId)
-                    .collect(Collectors.toList());
+        // 3. 批量查询内容详情；关注Feed流按时间完整展示，不做已读过滤
+        List<Long> postIds = entries.stream()
+                .map(FeedEntry::getPostId)
+                .collect(Collectors.toList());
+        List<Post> posts = postService.getPostsByIds(postIds);
+
+        // 4. 确定是否有下一页和下一个游标
+        boolean hasNext = entries.size() >= pageSize;
+        String nextCursor = hasNext ? FeedCursor.of(entries.get(entries.size() - 1)).encode() : null;
+
+        return new PageResult<>(posts, nextCursor, hasNext);
+    }
+
+    /**
+     * 获取推荐Feed流
+     * 推荐结果由推荐流水线生成后按用户缓存一段时间，按名次游标分页；缓存过期后首页请求重新生成
+     */
+    public PageResult<Post> getRecommendFeed(Long userId, String cursorToken, Integer pageSize) {
+        log.debug("获取推荐Feed流，用户ID：{}，游标：{}", userId, cursorToken);
+        FeedCursor cursor = FeedCursor.decode(cursorToken);
+
+        if (pageSize == null || pageSize <= 0) {
+            pageSize = feedConfig.getPageSize();
         }
 
-        // 3. 如果仍然为空，尝试使用拉模式补充
-        if (postIds.isEmpty()) {
-            log.info("收件箱为空，使用拉模式获取关注人的最新内容");
-            postIds = pullFeedFromFollowing(userId, pageSize);
+        // 1. 读取推荐结果缓存，缓存已过期时单飞地重新生成，并发请求只生成一次
+        String recommendKey = RedisKeyUtil.getUserRecommendKey(userId);
+        List<FeedEntry> entries = outboxReader.readPage(recommendKey, cursor, pageSize);
+        if (entries.isEmpty() && !Boolean.TRUE.equals(idRedisTemplate.hasKey(recommendKey))) {
+            List<FeedEntry> generated = cacheLoader.coalesce("recommend", recommendKey, () -> {
+                List<FeedEntry> ranked = recommendPipeline.recommend(userId);
+                timelineWriter.replaceRecommendations(userId, ranked);
+                return ranked;
+            });
+            entries = FeedCursor.filter(generated, cursor);
+            entries = entries.size() > pageSize ? entries.subList(0, pageSize) : entries;
         }
 
-        // 4. 批量查询内容详情
+        // 2. 批量查询内容详情，并记录为已读，重新生成推荐时不再召回
+        List<Long> postIds = entries.stream()
+                .map(FeedEntry::getPostId)
+                .collect(Collectors.toList());
         List<Post> posts = postService.getPostsByIds(postIds);
+        seenPostFilter.markSeenAsync(userId, postIds);
 
-        // 5. 确定是否有下一页和下一个游标
-        boolean hasNext = posts.size() >= pageSize;
-        Long nextCursor = hasNext && !posts.isEmpty() ?
-                posts.get(posts.size() - 1).getId() : null;
+        boolean hasNext = entries.size() >= pageSize;
+        String nextCursor = hasNext ? FeedCursor.of(entries.get(entries.size() - 1)).encode() : null;
 
         return new PageResult<>(posts, nextCursor, hasNext);
     }
 
     /**
-     * 获取推荐Feed流（基于热门内容）
+     * 获取话题Feed流
+     * 读取话题时间线ZSet，按(分值, 内容ID)降序游标分页，与关注Feed流的游标语义一致
      */
-    public PageResult<Post> getRecommendFeed(Long userId, Integer page, Integer pageSize) {
-        log.info("获取推荐Feed流，用户ID：{}", userId);
-
-        if (page == null || page <= 0) {
-            page = 1;
+    public PageResult<Post> getTopicFeed(String topic, String cursorToken, Integer pageSize) {
+        topic = TopicTrendTracker.normalize(topic);
+        if (topic == null) {
+            throw new BusinessException(ResultCode.PARAM_ERROR);
         }
+        log.debug("获取话题Feed流，话题：{}，游标：{}", topic, cursorToken);
+        FeedCursor cursor = FeedCursor.decode(cursorToken);
+
         if (pageSize == null || pageSize <= 0) {
             pageSize = feedConfig.getPageSize();
         }
 
-        // TODO: 实现推荐算法，这里简单返回最新的热门内容
-        // 可以基于：1. 用户兴趣标签 2. 协同过滤 3. 热度排序等
+        List<FeedEntry> entries = readTopic(topic, cursor, pageSize);
 
-        List<Long> postIds = new ArrayList<>();
+        List<Post> posts = postService.getPostsByIds(entries.stream()
+                .map(FeedEntry::getPostId)
+                .collect(Collectors.toList()));
 
-        // 1. 先从热门内容缓存获取
-        String hotPostsKey = RedisKeyUtil.getHotPostsKey();
-        Set<Object> hotPostIds = redisTemplate.opsForZSet()
-                .reverseRange(hotPostsKey, (long) (page - 1) * pageSize, (long) page * pageSize - 1);
+        boolean hasNext = entries.size() >= pageSize;
+        String nextCursor = hasNext ? FeedCursor.of(entries.get(entries.size() - 1)).encode() : null;
 
-        if (CollUtil.isNotEmpty(hotPostIds)) {
-            postIds = hotPostIds.stream()
-                    .map(obj -> Long.parseLong(obj.toString()))
-                    .collect(Collectors.toList());
+        return new PageResult<>(posts, nextCursor, hasNext);
+    }
+
+    /**
+     * 读取收件箱中位于游标之后的条目
+     */
+    private List<FeedEntry> readInbox(Long userId, FeedCursor cursor, int limit) {
+        String feedKey = RedisKeyUtil.getUserFeedKey(userId);
+        List<FeedEntry> entries = outboxReader.readPage(feedKey, cursor, limit);
+        if (entries.size() >= limit) {
+            return entries;
         }
 
-        // 2. 缓存未命中，从数据库获取热门内容
-        if (postIds.isEmpty()) {
-            log.info("热门缓存未命中，从数据库获取");
-            // 简单按点赞数排序
-            List<Post> hotPosts = postMapper.selectList(null);
-            hotPosts.sort((p1, p2) -> p2.getLikeCount().compareTo(p1.getLikeCount()));
+        // 首页：缓存未命中时单飞地从数据库重建时间线，并发请求只回源一次
+        if (cursor == null) {
+            if (!entries.isEmpty()) {
+                return entries;
+            }
+            log.debug("收件箱缓存未命中，从数据库重建时间线，用户ID：{}", userId);
+            List<FeedEntry> rebuilt = cacheLoader.coalesce("timeline", feedKey, () -> loadTimeline(userId));
+            return rebuilt.size() > limit ? rebuilt.subList(0, limit) : rebuilt;
+        }
 
-            int start = (page - 1) * pageSize;
-            int end = Math.min(start + pageSize, hotPosts.size());
+        // 缓存未被裁剪时已包含全部内容，否则剩余部分从数据库获取
+        if (!entries.isEmpty() && !isTrimmed(feedKey)) {
+            return entries;
+        }
+        log.debug("收件箱缓存数据不足，从数据库获取Feed流，用户ID：{}", userId);
+        return feedInboxMapper.selectUserFeed(userId, cursor.time(), cursor.getPostId(), limit)
+                .stream()
+                .map(inbox -> new FeedEntry(inbox.getPostId(), FeedEntry.scoreOf(inbox.getCreatedAt())))
+                .collect(Collectors.toList());
+    }
 
-            if (start < hotPosts.size()) {
-                return new PageResult<>(
-                        hotPosts.subList(start, end),
-                        (long) hotPosts.size(),
-                        page,
-                        pageSize
-                );
-            }
+    /**
+     * 读取话题时间线中位于游标之后的条目
+     */
+    private List<FeedEntry> readTopic(String topic, FeedCursor cursor, int limit) {
+        String topicKey = RedisKeyUtil.getTopicFeedKey(topic);
+        List<FeedEntry> entries = outboxReader.readPage(topicKey, cursor, limit);
+        if (entries.size() >= limit) {
+            return entries;
         }
 
-        // 3. 批量查询内容详情
-        List<Post> posts = postService.getPostsByIds(postIds);
+        // 首页缓存未命中：单飞地从数据库重建话题时间线，并发请求只回源一次；只有空标记时说明话题没有内容
+        if (entries.isEmpty() && cursor == null) {
+            if (Boolean.TRUE.equals(idRedisTemplate.hasKey(topicKey))) {
+                return entries;
+            }
+            log.debug("话题时间线缓存未命中，从数据库重建，话题：{}", topic);
+            List<FeedEntry> rebuilt = cacheLoader.coalesce("topic_timeline", topicKey, () -> loadTopicTimeline(topic));
+            return rebuilt.size() > limit ? rebuilt.subList(0, limit) : rebuilt;
+        }
 
-        return new PageResult<>(posts, (long) posts.size(), page, pageSize);
+        // 缓存未被裁剪时已包含话题全部内容，否则剩余部分从数据库获取
+        if (!entries.isEmpty() && !isTrimmed(topicKey)) {
+            return entries;
+        }
+        log.debug("话题时间线缓存数据不足，从数据库获取，话题：{}", topic);
+        return selectTopicEntries(topic, cursor, limit);
     }
 
     /**
-     * 从Redis缓存获取Post ID列表
+     * 时间线ZSet是否已达到最大长度，达到时更早的内容可能已被裁剪，只在数据库中
      */
-    private List<Long> getPostIdsFromCache(String feedKey, Long maxId, int limit) {
-        Set<ZSetOperations.TypedTuple<Object>> tuples;
+    private boolean isTrimmed(String key) {
+        Long size = idRedisTemplate.opsForZSet().zCard(key);
+        return size == null || size >= feedConfig.getMaxFeedSize();
+    }
 
-        if (maxId != null) {
-            // 使用score范围查询（score是时间戳）
-            tuples = redisTemplate.opsForZSet()
-                    .reverseRangeByScoreWithScores(feedKey, 0, maxId, 0, limit);
-        } else {
-            // 获取最新的
-            tuples = redisTemplate.opsForZSet()
-                    .reverseRangeWithScores(feedKey, 0, limit - 1);
+    /**
+     * 从数据库加载话题最新内容并写入话题时间线，没有内容时写入空标记
+     * 查询与写入之间发布的内容因话题时间线尚不存在而跳过追加，写入后补读最新一页并再次合并
+     */
+    private List<FeedEntry> loadTopicTimeline(String topic) {
+        List<FeedEntry> entries = selectTopicEntries(topic, null, feedConfig.getMaxFeedSize());
+        if (!timelineWriter.mergeIntoTopic(topic, entries)) {
+            return entries;
         }
-
-        if (CollUtil.isEmpty(tuples)) {
-            return new ArrayList<>();
+        Set<Long> loaded = entries.stream().map(FeedEntry::getPostId).collect(Collectors.toSet());
+        List<FeedEntry> missed = selectTopicEntries(topic, null, feedConfig.getPageSize()).stream()
+                .filter(entry -> !loaded.contains(entry.getPostId()))
+                .toList();
+        if (missed.isEmpty()) {
+            return entries;
         }
+        log.debug("话题时间线重建期间有{}条新内容，补写入，话题：{}", missed.size(), topic);
+        timelineWriter.mergeIntoTopic(topic, missed);
+        return FeedMerger.merge(List.of(missed, entries), feedConfig.getMaxFeedSize());
+    }
 
-        return tuples.stream()
-                .map(tuple -> Long.parseLong(tuple.getValue().toString()))
+    private List<FeedEntry> selectTopicEntries(String topic, FeedCursor cursor, int limit) {
+        return postMapper.selectLatestByTopic(topic,
+                        cursor == null ? null : cursor.time(),
+                        cursor == null ? null : cursor.getPostId(),
+                        limit)
+                .stream()
+                .map(post -> new FeedEntry(post.getId(), FeedEntry.scoreOf(post.getCreatedAt())))
                 .collect(Collectors.toList());
     }
 
     /**
-     * 拉模式：从关注的人的发件箱拉取内容
+     * 从数据库加载收件箱最新内容，与关注人的发件箱归并后写入Redis时间线，以内容创建时间为分值
+     * 推模式只为活跃粉丝写收件箱，沉寂期间错过的内容只在发件箱中，需一并合并
      */
-    private List<Long> pullFeedFromFollowing(Long userId, int limit) {
-        // 1. 获取关注列表
+    private List<FeedEntry> loadTimeline(Long userId) {
+        int maxFeedSize = feedConfig.getMaxFeedSize();
+        List<FeedEntry> inbox = feedInboxMapper.selectUserFeed(userId, null, null, maxFeedSize)
+                .stream()
+                .map(row -> new FeedEntry(row.getPostId(), FeedEntry.scoreOf(row.getCreatedAt())))
+                .toList();
         List<Long> followingIds = followService.getFollowingIds(userId);
+        List<FeedEntry> entries = followingIds.isEmpty() ? inbox
+                : FeedMerger.merge(List.of(inbox, outboxReader.readLatest(followingIds, null, maxFeedSize)), maxFeedSize);
+        timelineWriter.mergeIntoTimeline(userId, entries);
+        return entries;
+    }
+
+    /**
+     * 从关注列表中筛选出拉模式作者，一次SMISMEMBER完成
+     * 拉模式作者集合由PullAuthorRegistry在启动时按粉丝数初始化，并在作者越过阈值时更新
+     */
+    private List<Long> filterPullAuthors(List<Long> followingIds) {
+        if (followingIds.isEmpty()) {
+            return followingIds;
+        }
+        Map<Object, Boolean> membership = idRedisTemplate.opsForSet()
+                .isMember(RedisKeyUtil.getPullAuthorsKey(), followingIds.toArray());
+        if (membership == null) {
+            return new ArrayList<>();
+        }
+        return followingIds.stream()
+                .filter(id -> Boolean.TRUE.equals(membership.get(id)))
+                .collect(Collectors.toList());
+    }
 
+    /**
+     * 拉模式：从关注的人的发件箱拉取内容
+     * 一次pipeline读取全部关注人的发件箱ZSet并k路归并，仅缓存缺失的作者回源数据库
+     *
+     * @param cursor 分页游标，为空时从最新开始
+     */
+    private List<FeedEntry> pullFeedFromFollowing(List<Long> followingIds, FeedCursor cursor, int limit) {
         if (followingIds.isEmpty()) {
-            log.info("用户{}未关注任何人", userId);
             return new ArrayList<>();
         }
+        return outboxReader.readLatest(followingIds, cursor, limit);
+    }
 
-        log.info("用户{}关注了{}个人，开始拉取他们的最新内容", userId, followingIds.size());
+    /**
+     * 从关注人的发件箱重建用户时间线
+     * 推模式只写入活跃粉丝，沉寂用户回访时由此补齐期间错过的内容
+     */
+    public void rebuildTimelineFromOutboxes(Long userId) {
+        List<Long> followingIds = followService.getFollowingIds(userId);
+        if (followingIds.isEmpty()) {
+            return;
+        }
 
-        // 2. 从关注的用户的发件箱获取最新内容
-        List<Post> posts = postMapper.selectLatestByUserIds(followingIds, limit);
+        List<FeedEntry> entries = outboxReader.readLatest(followingIds, null, feedConfig.getMaxFeedSize());
 
-        return posts.stream()
-                .map(Post::getId)
-                .collect(Collectors.toList());
+        timelineWriter.mergeIntoTimeline(userId, entries);
+        log.info("用户{}时间线重建完成，共合并{}条内容", userId, entries.size());
     }
 
     /**
@@ -205,21 +350,11 @@ public class FeedService {
         String feedKey = RedisKeyUtil.getUserFeedKey(userId);
 
         // 清空旧缓存
-        redisTemplate.delete(feedKey);
+        idRedisTemplate.delete(feedKey);
 
-        // 从数据库重新加载
-        List<Long> postIds = feedInboxMapper.selectUserFeed(userId, null, feedConfig.getMaxFeedSize())
-                .stream()
-                .map(FeedInbox::getPostId)
-                .toList();
-
-        if (!postIds.isEmpty()) {
-            // 重新写入缓存
-            postIds.forEach(postId -> {
-                redisTemplate.opsForZSet().add(feedKey, postId, System.currentTimeMillis());
-            });
-        }
+        // 从数据库重新加载，以收件箱创建时间为分值，与游标分页保持一致
+        List<FeedEntry> entries = loadTimeline(userId);
 
-        log.info("Feed缓存刷新完成，共加载{}条内容", postIds.size());
+        log.info("Feed缓存刷新完成，共加载{}条内容", entries.size());
     }
 }
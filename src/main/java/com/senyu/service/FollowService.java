@@ -4,16 +4,22 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.senyu.common.ResultCode;
 import com.senyu.entity.Follow;
 import com.senyu.entity.User;
+import com.senyu.feed.PullAuthorRegistry;
 import com.senyu.mapper.FollowMapper;
 import com.senyu.mapper.UserMapper;
+import com.senyu.serializer.LongRedisSerializer;
+import com.senyu.util.CachedWriteScripts;
 import com.senyu.util.RedisKeyUtil;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -32,7 +38,10 @@ public class FollowService {
     private UserMapper userMapper;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private PullAuthorRegistry pullAuthorRegistry;
 
     /**
      * 关注用户
@@ -72,8 +81,11 @@ public class FollowService {
         userMapper.increaseFollowerCount(followeeId, 1);   // 被关注者粉丝数+1
         userMapper.increaseFollowingCount(followerId, 1);  // 关注者关注数+1
 
-        // 6. 更新Redis缓存
+        // 6. 更新Redis缓存，被关注者粉丝数达到拉模式阈值时登记为拉模式作者
         updateFollowCache(followerId, followeeId, true);
+        if (followee.getFollowerCount() != null) {
+            pullAuthorRegistry.onFollowerCountChanged(followeeId, followee.getFollowerCount() + 1L);
+        }
 
         log.info("关注成功");
     }
@@ -114,7 +126,7 @@ public class FollowService {
     public boolean isFollowing(Long followerId, Long followeeId) {
         // 先从缓存查询
         String followingKey = RedisKeyUtil.getUserFollowingKey(followerId);
-        Boolean isMember = redisTemplate.opsForSet().isMember(followingKey, followeeId);
+        Boolean isMember = idRedisTemplate.opsForSet().isMember(followingKey, followeeId);
 
         if (isMember != null) {
             return isMember;
@@ -133,7 +145,7 @@ public class FollowService {
     public List<Long> getFollowerIds(Long userId) {
         // 先从缓存获取
         String followersKey = RedisKeyUtil.getUserFollowersKey(userId);
-        Long size = redisTemplate.opsForSet().size(followersKey);
+        Long size = idRedisTemplate.opsForSet().size(followersKey);
 
         if (size != null && size > 0) {
             return followMapper.selectFollowerIds(userId);
@@ -142,8 +154,8 @@ public class FollowService {
         // 缓存未命中，从数据库查询并缓存
         List<Long> followerIds = followMapper.selectFollowerIds(userId);
         if (!followerIds.isEmpty()) {
-            redisTemplate.opsForSet().add(followersKey, followerIds.toArray());
-            redisTemplate.expire(followersKey, 3600, TimeUnit.SECONDS);
+            idRedisTemplate.opsForSet().add(followersKey, followerIds.toArray(new Long[0]));
+            idRedisTemplate.expire(followersKey, 3600, TimeUnit.SECONDS);
         }
 
         return followerIds;
@@ -151,21 +163,22 @@ public class FollowService {
 
     /**
      * 获取关注列表
+     * 缓存命中时直接返回集合成员，只在未命中时查询数据库
      */
     public List<Long> getFollowingIds(Long userId) {
         // 先从缓存获取
         String followingKey = RedisKeyUtil.getUserFollowingKey(userId);
-        Long size = redisTemplate.opsForSet().size(followingKey);
+        Set<Long> cached = idRedisTemplate.opsForSet().members(followingKey);
 
-        if (size != null && size > 0) {
-            return followMapper.selectFollowingIds(userId);
+        if (cached != null && !cached.isEmpty()) {
+            return new ArrayList<>(cached);
         }
 
         // 缓存未命中，从数据库查询并缓存
         List<Long> followingIds = followMapper.selectFollowingIds(userId);
         if (!followingIds.isEmpty()) {
-            redisTemplate.opsForSet().add(followingKey, followingIds.toArray());
-            redisTemplate.expire(followingKey, 3600, TimeUnit.SECONDS);
+            idRedisTemplate.opsForSet().add(followingKey, followingIds.toArray(new Long[0]));
+            idRedisTemplate.expire(followingKey, 3600, TimeUnit.SECONDS);
         }
 
         return followingIds;
@@ -179,17 +192,24 @@ public class FollowService {
         String followingKey = RedisKeyUtil.getUserFollowingKey(followerId);
 
         if (isFollow) {
-            // 关注：添加到集合
-            redisTemplate.opsForSet().add(followersKey, followerId);
-            redisTemplate.opsForSet().add(followingKey, followeeId);
+            // 关注：已缓存的集合中添加成员，未缓存的由读取方从数据库加载
+            addIfCached(followersKey, followerId);
+            addIfCached(followingKey, followeeId);
         } else {
             // 取消关注：从集合移除
-            redisTemplate.opsForSet().remove(followersKey, followerId);
-            redisTemplate.opsForSet().remove(followingKey, followeeId);
+            idRedisTemplate.opsForSet().remove(followersKey, followerId);
+            idRedisTemplate.opsForSet().remove(followingKey, followeeId);
+            idRedisTemplate.expire(followersKey, 3600, TimeUnit.SECONDS);
+            idRedisTemplate.expire(followingKey, 3600, TimeUnit.SECONDS);
         }
+    }
 
-        // 设置过期时间
-        redisTemplate.expire(followersKey, 3600, TimeUnit.SECONDS);
-        redisTemplate.expire(followingKey, 3600, TimeUnit.SECONDS);
+    private void addIfCached(String key, Long member) {
+        idRedisTemplate.execute(CachedWriteScripts.SADD_IF_EXISTS,
+                StringRedisSerializer.UTF_8,
+                LongRedisSerializer.INSTANCE,
+                List.of(key),
+                String.valueOf(member),
+                "3600");
     }
 }
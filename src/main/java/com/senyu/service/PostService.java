@@ -1,19 +1,36 @@
 package com.senyu.service;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.senyu.cache.PostCache;
+import com.senyu.cache.PostCounterCache;
+import com.senyu.config.FeedConfig;
+import com.senyu.counter.PostCounterBuffer;
+import com.senyu.counter.PostCounterDelta;
+import com.senyu.counter.PostCounterType;
+import com.senyu.counter.PostCounts;
+import com.senyu.entity.FeedDispatchEvent;
 import com.senyu.entity.Post;
+import com.senyu.event.PostPublishedEvent;
+import com.senyu.feed.FeedEntry;
+import com.senyu.feed.TimelineWriter;
+import com.senyu.mapper.FeedDispatchEventMapper;
 import com.senyu.mapper.PostMapper;
 import com.senyu.mapper.UserMapper;
-import com.senyu.strategy.impl.HybridFeedStrategy;
-import com.senyu.util.RedisKeyUtil;
+import com.senyu.recommend.UserInterestTracker;
+import com.senyu.topic.TopicTrendTracker;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 
 /**
  * 内容服务
@@ -31,17 +48,35 @@ public class PostService {
     private UserMapper userMapper;
 
     @Resource
-    private HybridFeedStrategy hybridFeedStrategy;
+    private FeedDispatchEventMapper feedDispatchEventMapper;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private FeedConfig feedConfig;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Resource
+    private PostCache postCache;
+
+    @Resource
+    private PostCounterBuffer postCounterBuffer;
+
+    @Resource
+    private PostCounterCache postCounterCache;
+
+    @Resource
+    private TimelineWriter timelineWriter;
+
+    @Resource
+    private UserInterestTracker userInterestTracker;
 
     /**
      * 发布内容
      */
     @Transactional(rollbackFor = Exception.class)
     public Long publishPost(Post post) {
-        log.info("开始发布内容，用户ID：{}", post.getUserId());
+        log.debug("开始发布内容，用户ID：{}", post.getUserId());
 
         // 1. 保存内容到数据库
         post.setStatus(1); // 已发布
@@ -49,22 +84,31 @@ public class PostService {
         post.setCommentCount(0);
         post.setShareCount(0);
         post.setViewCount(0);
+        // 创建时间截断到秒，与DATETIME列精度一致，Redis时间线分值与数据库游标查询使用同一时间
+        post.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS));
         postMapper.insert(post);
 
         // 2. 更新用户发帖数
         userMapper.increasePostCount(post.getUserId());
 
-        // 3. 使用混合策略分发Feed流
-        try {
-            hybridFeedStrategy.dispatchFeed(post);
-        } catch (Exception e) {
-            log.error("分发Feed流失败，内容ID：{}", post.getId(), e);
-            // 不影响主流程，异步处理可以容忍失败
-        }
+        // 3. 在同一事务中写入分发事件，进程中断时由中继补偿分发
+        FeedDispatchEvent dispatchEvent = new FeedDispatchEvent();
+        dispatchEvent.setPostId(post.getId());
+        dispatchEvent.setAuthorId(post.getUserId());
+        dispatchEvent.setStatus(FeedDispatchEvent.STATUS_PENDING);
+        dispatchEvent.setRetryCount(0);
+        dispatchEvent.setNextRetryAt(LocalDateTime.now().plusSeconds(feedConfig.getRelayGraceSeconds()));
+        feedDispatchEventMapper.insert(dispatchEvent);
 
-        // 4. 缓存内容详情
+        // 4. 事务提交后异步分发Feed流，发布耗时不再随粉丝数增长
+        eventPublisher.publishEvent(new PostPublishedEvent(post, dispatchEvent.getId()));
+
+        // 5. 缓存内容详情
         cachePostInfo(post);
 
+        // 6. 事务提交后写入话题时间线
+        indexTopicAfterCommit(post);
+
         log.info("内容发布成功，内容ID：{}", post.getId());
         return post.getId();
     }
@@ -73,58 +117,109 @@ public class PostService {
      * 获取内容详情
      */
     public Post getPostById(Long postId) {
-        // 先从缓存获取
-        String cacheKey = RedisKeyUtil.getPostInfoKey(postId);
-        Post post = (Post) redisTemplate.opsForValue().get(cacheKey);
-
-        if (post != null) {
-            log.info("从缓存获取内容详情，内容ID：{}", postId);
-            // 异步增加浏览数
-            postMapper.increaseViewCount(postId);
-            return post;
-        }
-
-        // 缓存未命中，从数据库查询
-        post = postMapper.selectById(postId);
-        if (post != null) {
-            cachePostInfo(post);
-            postMapper.increaseViewCount(postId);
+        // 依次查询本地缓存、Redis、数据库
+        Post post = postCache.get(postId);
+        if (post == null) {
+            return null;
         }
-
-        return post;
+        // 浏览数先写入内存缓冲，定时批量落库
+        postCounterBuffer.increment(postId, PostCounterType.VIEW);
+        return withCounters(List.of(post)).get(0);
     }
 
     /**
      * 根据ID列表批量获取内容
+     * 经多级缓存读取，按传入顺序返回已发布的内容
      */
     public List<Post> getPostsByIds(List<Long> postIds) {
         if (postIds == null || postIds.isEmpty()) {
             return List.of();
         }
 
-        LambdaQueryWrapper<Post> wrapper = new LambdaQueryWrapper<>();
-        wrapper.in(Post::getId, postIds)
-                .eq(Post::getStatus, 1)
-                .orderByDesc(Post::getCreatedAt);
-
-        return postMapper.selectList(wrapper);
+        List<Post> posts = postCache.getAll(postIds).stream()
+                .filter(post -> Integer.valueOf(1).equals(post.getStatus()))
+                .toList();
+        return withCounters(posts);
     }
 
     /**
      * 点赞内容
+     * 只写入计数缓冲，落库后同步到计数Hash，内容详情缓存不受影响；同时计入用户对内容话题的兴趣。
+     * 计数不在请求事务内落库，进程崩溃时最多丢失一个落库间隔内的点赞，见{@link PostCounterBuffer}
      */
-    @Transactional(rollbackFor = Exception.class)
-    public void likePost(Long postId) {
-        postMapper.increaseLikeCount(postId, 1);
-        // 清除缓存
-        redisTemplate.delete(RedisKeyUtil.getPostInfoKey(postId));
+    public void likePost(Long userId, Long postId) {
+        // 不存在的内容不计数，避免伪造的ID经落库进入热门排行和话题热榜
+        Post post = postCache.get(postId);
+        if (post != null) {
+            postCounterBuffer.increment(postId, PostCounterType.LIKE);
+            userInterestTracker.onLiked(userId, post.getTopic());
+        }
+    }
+
+    /**
+     * 为内容填充计数：计数Hash中的已落库计数 + 本实例尚未落库的增量
+     * 缓存中的内容对象是共享的，返回填充后的副本
+     */
+    private List<Post> withCounters(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return posts;
+        }
+        Map<Long, PostCounts> countsMap = postCounterCache.getAll(posts.stream()
+                .map(Post::getId)
+                .toList());
+
+        List<Post> result = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            Post copy = new Post();
+            BeanUtils.copyProperties(post, copy);
+            PostCounts counts = countsMap.get(post.getId());
+            if (counts != null) {
+                copy.setLikeCount((int) counts.getLikeCount());
+                copy.setCommentCount((int) counts.getCommentCount());
+                copy.setShareCount((int) counts.getShareCount());
+                copy.setViewCount((int) counts.getViewCount());
+            }
+            PostCounterDelta delta = postCounterBuffer.peek(post.getId());
+            if (delta != null) {
+                copy.setLikeCount(plus(copy.getLikeCount(), delta.getLikeDelta()));
+                copy.setCommentCount(plus(copy.getCommentCount(), delta.getCommentDelta()));
+                copy.setShareCount(plus(copy.getShareCount(), delta.getShareDelta()));
+                copy.setViewCount(plus(copy.getViewCount(), delta.getViewDelta()));
+            }
+            result.add(copy);
+        }
+        return result;
+    }
+
+    private static Integer plus(Integer value, long delta) {
+        return (int) ((value == null ? 0 : value) + delta);
     }
 
     /**
      * 缓存内容详情
      */
     private void cachePostInfo(Post post) {
-        String cacheKey = RedisKeyUtil.getPostInfoKey(post.getId());
-        redisTemplate.opsForValue().set(cacheKey, post, 3600, TimeUnit.SECONDS);
+        postCache.put(post);
+    }
+
+    /**
+     * 事务提交后将内容写入话题时间线，未开启事务时直接写入
+     */
+    private void indexTopicAfterCommit(Post post) {
+        String topic = TopicTrendTracker.normalize(post.getTopic());
+        if (topic == null) {
+            return;
+        }
+        Runnable index = () -> timelineWriter.appendToTopic(topic, post.getId(), FeedEntry.scoreOf(post.getCreatedAt()));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            index.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                index.run();
+            }
+        });
     }
 }
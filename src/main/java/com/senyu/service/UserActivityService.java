@@ -0,0 +1,152 @@
+package com.senyu.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.senyu.config.FeedConfig;
+import com.senyu.util.RedisKeyUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户活跃度服务
+ * 在Redis ZSet中维护每个用户的最后访问时间，推模式据此只写入近期活跃的粉丝，
+ * 沉寂用户回访时从关注人的发件箱重建时间线。
+ * 索引建立后需经过一个活跃窗口才完整，在此之前（如刚上线或Redis数据丢失后）视所有用户为活跃
+ *
+ * @author senyu
+ */
+@Slf4j
+@Service
+public class UserActivityService {
+
+    @Resource
+    private RedisTemplate<String, Long> idRedisTemplate;
+
+    @Resource
+    private FeedService feedService;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Resource(name = "commonAsyncExecutor")
+    private Executor commonAsyncExecutor;
+
+    /**
+     * 最近已上报过的用户，间隔内的重复访问不再写Redis
+     */
+    private Cache<Long, Boolean> recentlyTouched;
+
+    /**
+     * 活跃度索引是否已覆盖完整的活跃窗口，确认后不再查询Redis，由定时任务重新校验
+     */
+    private volatile boolean indexWarm;
+
+    @PostConstruct
+    public void init() {
+        recentlyTouched = CacheBuilder.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(feedConfig.getActivityTouchIntervalSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 记录用户访问
+     * 本地按间隔节流，真正的Redis读写在异步线程中完成，不占用请求线程
+     */
+    public void touch(Long userId) {
+        if (recentlyTouched.asMap().putIfAbsent(userId, Boolean.TRUE) != null) {
+            return;
+        }
+        commonAsyncExecutor.execute(() -> record(userId));
+    }
+
+    /**
+     * 从一批用户中筛选出近期活跃的用户
+     * 一次ZMSCORE查询整批用户；活跃度索引不可用或尚未覆盖完整窗口时返回全部用户，保证不丢推送
+     */
+    public List<Long> filterActive(List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return userIds;
+        }
+        try {
+            if (!indexWarm && !checkIndexWarm()) {
+                return userIds;
+            }
+            List<Double> lastSeen = idRedisTemplate.opsForZSet()
+                    .score(RedisKeyUtil.getUserActivityKey(), userIds.toArray());
+            if (lastSeen == null) {
+                return userIds;
+            }
+            double activeSince = activeSince(System.currentTimeMillis());
+            List<Long> active = new ArrayList<>(userIds.size());
+            for (int i = 0; i < userIds.size(); i++) {
+                Double score = lastSeen.get(i);
+                if (score != null && score >= activeSince) {
+                    active.add(userIds.get(i));
+                }
+            }
+            return active;
+        } catch (Exception e) {
+            log.warn("查询活跃度索引失败，推送给全部粉丝: {}", e.getMessage());
+            return userIds;
+        }
+    }
+
+    /**
+     * 清理超出活跃窗口的用户，控制索引大小
+     */
+    @Scheduled(cron = "0 0 * * * ?")
+    public void evictInactive() {
+        try {
+            checkIndexWarm();
+            Long removed = idRedisTemplate.opsForZSet().removeRangeByScore(
+                    RedisKeyUtil.getUserActivityKey(), 0, activeSince(System.currentTimeMillis()));
+            log.info("清理不活跃用户{}个", removed);
+        } catch (Exception e) {
+            log.error("清理活跃度索引失败", e);
+        }
+    }
+
+    private void record(Long userId) {
+        try {
+            String key = RedisKeyUtil.getUserActivityKey();
+            long now = System.currentTimeMillis();
+            Double lastSeen = idRedisTemplate.opsForZSet().score(key, userId);
+            idRedisTemplate.opsForZSet().add(key, userId, now);
+            if (lastSeen == null) {
+                // 索引为空时记录开始时间，已存在时不覆盖
+                idRedisTemplate.opsForValue().setIfAbsent(RedisKeyUtil.getUserActivitySinceKey(), now);
+            }
+
+            // 沉寂期间没有收到推送，回访时从发件箱补齐时间线
+            if (lastSeen == null || lastSeen < activeSince(now)) {
+                log.info("用户{}重新活跃，从发件箱重建时间线", userId);
+                feedService.rebuildTimelineFromOutboxes(userId);
+            }
+        } catch (Exception e) {
+            log.warn("记录用户活跃时间失败，用户ID：{}", userId, e);
+        }
+    }
+
+    /**
+     * 校验活跃度索引的开始记录时间是否早于活跃窗口起点
+     */
+    private boolean checkIndexWarm() {
+        Long since = idRedisTemplate.opsForValue().get(RedisKeyUtil.getUserActivitySinceKey());
+        indexWarm = since != null && since <= activeSince(System.currentTimeMillis());
+        return indexWarm;
+    }
+
+    private double activeSince(long now) {
+        return now - TimeUnit.DAYS.toMillis(feedConfig.getActiveDays());
+    }
+}
@@ -2,6 +2,8 @@ package com.senyu.service.impl;
 
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.senyu.cache.AuthSnapshotCache;
+import com.senyu.cache.SingleFlightCacheLoader;
 import com.senyu.common.ResultCode;
 import com.senyu.config.JwtConfig;
 import com.senyu.dto.*;
@@ -17,9 +19,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 用户服务实现类
@@ -36,6 +40,10 @@ public class UserServiceImpl implements UserService {
     private final JwtUtil jwtUtil;
     private final JwtConfig jwtConfig;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final SingleFlightCacheLoader cacheLoader;
+    private final AuthSnapshotCache authSnapshotCache;
+
+    private static final Duration USER_CACHE_TTL = Duration.ofHours(1);
 
     @Override
     @Transactional(rollbackFor = Exception.class)
@@ -108,20 +116,17 @@ public class UserServiceImpl implements UserService {
     public AuthResponse refreshToken(RefreshTokenRequest request) {
         String refreshToken = request.getRefreshToken();
 
-        // 验证refresh token
-        if (jwtUtil.isTokenExpired(refreshToken)) {
-            throw new BusinessException(ResultCode.TOKEN_EXPIRED);
-        }
+        // 验证refresh token，过期或无效时抛出异常
+        JwtPrincipal principal = jwtUtil.parseToken(refreshToken);
 
         // 检查token类型
-        String tokenType = jwtUtil.getTokenTypeFromToken(refreshToken);
-        if (!"refresh".equals(tokenType)) {
+        if (!principal.isRefreshToken()) {
             throw new BusinessException(ResultCode.INVALID_TOKEN);
         }
 
         // 获取用户信息
-        Long userId = jwtUtil.getUserIdFromToken(refreshToken);
-        Integer tokenVersion = jwtUtil.getTokenVersionFromToken(refreshToken);
+        Long userId = principal.getUserId();
+        Integer tokenVersion = principal.getTokenVersion();
 
         if (userId == null || tokenVersion == null) {
             throw new BusinessException(ResultCode.INVALID_TOKEN);
@@ -139,7 +144,7 @@ public class UserServiceImpl implements UserService {
         }
 
         // 验证token版本
-        if (!jwtUtil.validateToken(refreshToken, userId, user.getTokenVersion())) {
+        if (!tokenVersion.equals(user.getTokenVersion())) {
             throw new BusinessException(ResultCode.TOKEN_INVALID_VERSION);
         }
 
@@ -160,9 +165,8 @@ public class UserServiceImpl implements UserService {
         user.setTokenVersion(user.getTokenVersion() + 1);
         userMapper.updateById(user);
 
-        // 清除Redis缓存
-        String userCacheKey = RedisKeyUtil.getUserInfoKey(userId);
-        redisTemplate.delete(userCacheKey);
+        // 提交后清除Redis缓存，并通知各实例清除认证快照
+        evictAfterCommit(userId);
 
         log.info("用户登出成功: userId={}", userId);
     }
@@ -173,20 +177,9 @@ public class UserServiceImpl implements UserService {
             return null;
         }
 
-        // 先从Redis缓存获取
-        String cacheKey = RedisKeyUtil.getUserInfoKey(userId);
-        User user = (User) redisTemplate.opsForValue().get(cacheKey);
-
-        if (user == null) {
-            // 从数据库查询
-            user = userMapper.selectById(userId);
-            if (user != null) {
-                // 存入缓存，过期时间1小时
-                redisTemplate.opsForValue().set(cacheKey, user, 1, TimeUnit.HOURS);
-            }
-        }
-
-        return user;
+        // 先从Redis缓存获取，未命中时单飞回源，存入缓存，过期时间1小时
+        return cacheLoader.get("user", RedisKeyUtil.getUserInfoKey(userId), USER_CACHE_TTL,
+                () -> userMapper.selectById(userId));
     }
 
     @Override
@@ -233,6 +226,29 @@ public class UserServiceImpl implements UserService {
                 .build();
     }
 
+    /**
+     * 事务提交后清除用户缓存和各实例的认证快照
+     * 提交前清除时，并发请求可能把旧的Token版本号重新写回缓存
+     *
+     * @param userId 用户ID
+     */
+    private void evictAfterCommit(Long userId) {
+        Runnable evict = () -> {
+            redisTemplate.delete(RedisKeyUtil.getUserInfoKey(userId));
+            authSnapshotCache.invalidate(userId);
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict.run();
+            }
+        });
+    }
+
     /**
      * 生成认证响应
      *
@@ -3,13 +3,13 @@ package com.senyu.strategy.impl;
 import com.senyu.config.FeedConfig;
 import com.senyu.entity.Post;
 import com.senyu.entity.User;
+import com.senyu.feed.PullAuthorRegistry;
 import com.senyu.mapper.UserMapper;
 import com.senyu.strategy.FeedStrategy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-
 /**
  * 混合模式Feed流策略
  * 根据用户粉丝数动态选择推模式或拉模式
@@ -32,9 +32,12 @@ public class HybridFeedStrategy implements FeedStrategy {
     @Resource
     private PullFeedStrategy pullFeedStrategy;
 
+    @Resource
+    private PullAuthorRegistry pullAuthorRegistry;
+
     @Override
     public void dispatchFeed(Post post) {
-        log.info("使用混合模式分发Feed，内容ID：{}, 作者ID：{}", post.getId(), post.getUserId());
+        log.debug("使用混合模式分发Feed，内容ID：{}, 作者ID：{}", post.getId(), post.getUserId());
 
         // 1. 查询作者信息
         User author = userMapper.selectById(post.getUserId());
@@ -44,22 +47,27 @@ public class HybridFeedStrategy implements FeedStrategy {
         }
 
         Integer followerCount = author.getFollowerCount();
-        log.info("作者粉丝数：{}", followerCount);
+        log.debug("作者粉丝数：{}", followerCount);
 
         // 2. 根据粉丝数选择策略
         if (followerCount <= feedConfig.getPushFanThreshold()) {
             // 粉丝数较少，使用推模式
-            log.info("粉丝数 {} <= 推模式阈值 {}，使用推模式", followerCount, feedConfig.getPushFanThreshold());
+            log.debug("粉丝数 {} <= 推模式阈值 {}，使用推模式", followerCount, feedConfig.getPushFanThreshold());
             pushFeedStrategy.dispatchFeed(post);
+            pullFeedStrategy.dispatchFeed(post);   // 存入发件箱，供不活跃粉丝回访时重建时间线
+            pullAuthorRegistry.unregister(post.getUserId());
         } else if (followerCount >= feedConfig.getPullFanThreshold()) {
             // 粉丝数非常多，使用拉模式
-            log.info("粉丝数 {} >= 拉模式阈值 {}，使用拉模式", followerCount, feedConfig.getPullFanThreshold());
+            log.debug("粉丝数 {} >= 拉模式阈值 {}，使用拉模式", followerCount, feedConfig.getPullFanThreshold());
             pullFeedStrategy.dispatchFeed(post);
+            // 登记为拉模式作者，粉丝读取时间线时合并其发件箱
+            pullAuthorRegistry.register(post.getUserId());
         } else {
-            // 中等粉丝数，采用混合策略：推给活跃粉丝 + 存入发件箱
-            log.info("粉丝数 {} 处于中间区间，使用混合策略", followerCount);
-            pushFeedStrategy.dispatchFeed(post);  // 推给活跃粉丝
-            pullFeedStrategy.dispatchFeed(post);   // 同时存入发件箱
+            // 中等粉丝数，采用混合策略：分片并行推给活跃粉丝 + 存入发件箱
+            log.debug("粉丝数 {} 处于中间区间，使用混合策略", followerCount);
+            pushFeedStrategy.dispatchFeedSharded(post);  // 分片并行推给活跃粉丝
+            pullFeedStrategy.dispatchFeed(post);          // 同时存入发件箱
+            pullAuthorRegistry.unregister(post.getUserId());
         }
     }
 
@@ -1,19 +1,15 @@
 package com.senyu.strategy.impl;
 
-import com.senyu.config.FeedConfig;
 import com.senyu.entity.FeedOutbox;
 import com.senyu.entity.Post;
+import com.senyu.feed.FeedEntry;
+import com.senyu.feed.TimelineWriter;
 import com.senyu.mapper.FeedOutboxMapper;
 import com.senyu.strategy.FeedStrategy;
-import com.senyu.util.RedisKeyUtil;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
-import java.util.concurrent.TimeUnit;
-
 /**
  * 拉模式Feed流策略
  * 适用于粉丝数非常多的大V，内容存入发件箱，由粉丝主动拉取
@@ -28,44 +24,22 @@ public class PullFeedStrategy implements FeedStrategy {
     private FeedOutboxMapper feedOutboxMapper;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
-
-    @Resource
-    private FeedConfig feedConfig;
+    private TimelineWriter timelineWriter;
 
     @Override
     public void dispatchFeed(Post post) {
-        log.info("使用拉模式分发Feed，内容ID：{}, 作者ID：{}", post.getId(), post.getUserId());
+        log.debug("使用拉模式分发Feed，内容ID：{}, 作者ID：{}", post.getId(), post.getUserId());
 
         // 1. 插入到作者的发件箱（数据库）
         FeedOutbox feedOutbox = new FeedOutbox();
         feedOutbox.setUserId(post.getUserId());
         feedOutbox.setPostId(post.getId());
-        feedOutbox.setCreatedAt(LocalDateTime.now());
+        feedOutbox.setCreatedAt(post.getCreatedAt());
         feedOutboxMapper.insert(feedOutbox);
 
-        // 2. 存入Redis缓存
-        String outboxKey = RedisKeyUtil.getUserOutboxKey(post.getUserId());
-        try {
-            // 使用ZSet存储，score为时间戳
-            redisTemplate.opsForZSet().add(
-                    outboxKey,
-                    post.getId(),
-                    System.currentTimeMillis()
-            );
-
-            // 保持发件箱长度限制
-            Long size = redisTemplate.opsForZSet().size(outboxKey);
-            if (size != null && size > feedConfig.getMaxFeedSize()) {
-                redisTemplate.opsForZSet().removeRange(outboxKey, 0, size - feedConfig.getMaxFeedSize() - 1);
-            }
-
-            // 设置过期时间
-            redisTemplate.expire(outboxKey, feedConfig.getCacheTtl(), TimeUnit.SECONDS);
-
-            log.info("拉模式分发完成，内容已存入发件箱");
-        } catch (Exception e) {
-            log.error("存入Redis发件箱失败，用户ID：{}, 内容ID：{}", post.getUserId(), post.getId(), e);
+        // 2. 发件箱已缓存时存入Redis，未缓存时由读取方从数据库回填
+        if (timelineWriter.appendToOutbox(post.getUserId(), post.getId(), FeedEntry.scoreOf(post.getCreatedAt()))) {
+            log.debug("拉模式分发完成，内容已存入发件箱");
         }
     }
 
@@ -1,26 +1,30 @@
 package com.senyu.strategy.impl;
 
-import cn.hutool.core.collection.CollUtil;
 import com.senyu.config.FeedConfig;
 import com.senyu.entity.FeedInbox;
 import com.senyu.entity.Post;
+import com.senyu.feed.FeedEntry;
+import com.senyu.feed.TimelineWriter;
 import com.senyu.mapper.FeedInboxMapper;
 import com.senyu.mapper.FollowMapper;
+import com.senyu.service.UserActivityService;
 import com.senyu.strategy.FeedStrategy;
-import com.senyu.util.RedisKeyUtil;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * 推模式Feed流策略
- * 适用于粉丝数较少的用户，发布内容时主动推送到所有粉丝的收件箱
+ * 适用于粉丝数较少的用户，发布内容时主动推送到近期活跃粉丝的收件箱
  *
  * @author senyu
  */
@@ -35,33 +39,117 @@ public class PushFeedStrategy implements FeedStrategy {
     private FeedInboxMapper feedInboxMapper;
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private TimelineWriter timelineWriter;
+
+    @Resource
+    private UserActivityService userActivityService;
 
     @Resource
     private FeedConfig feedConfig;
 
+    @Resource(name = "feedFanoutExecutor")
+    private ThreadPoolTaskExecutor feedFanoutExecutor;
+
     @Override
     public void dispatchFeed(Post post) {
-        log.info("使用推模式分发Feed，内容ID：{}, 作者ID：{}", post.getId(), post.getUserId());
+        log.debug("使用推模式分发Feed，内容ID：{}, 作者ID：{}", post.getId(), post.getUserId());
 
-        // 1. 获取活跃粉丝列表
-        List<Long> followerIds = followMapper.selectActiveFollowerIds(post.getUserId());
+        // 逐页读取活跃粉丝并直接写入，内存占用只与页大小有关
+        int total = forEachFollowerPage(post.getUserId(), page -> writeShard(post, page));
 
-        if (CollUtil.isEmpty(followerIds)) {
-            log.info("用户{}没有活跃粉丝，无需推送", post.getUserId());
+        if (total == 0) {
+            log.debug("用户{}没有活跃粉丝，无需推送", post.getUserId());
             return;
         }
 
-        log.info("用户{}有{}个活跃粉丝，开始推送", post.getUserId(), followerIds.size());
+        log.info("推模式分发完成，共推送给{}个粉丝", total);
+    }
+
+    /**
+     * 分片并行推送
+     * 每页粉丝作为一个分片提交到扇出线程池并行写入，单条内容同时进行的分片数受限，
+     * 因此内存峰值为 页大小 × 并发分片数；全部分片完成后返回，任一分片失败时抛出异常，由上层重试
+     */
+    public void dispatchFeedSharded(Post post) {
+        log.debug("使用分片推模式分发Feed，内容ID：{}, 作者ID：{}", post.getId(), post.getUserId());
+
+        Semaphore permits = new Semaphore(feedConfig.getFanoutConcurrentShards());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        long start = System.currentTimeMillis();
+        int total = forEachFollowerPage(post.getUserId(), page -> {
+            permits.acquireUninterruptibly();
+            Runnable shard = () -> {
+                try {
+                    writeShard(post, page);
+                } finally {
+                    permits.release();
+                }
+            };
+            try {
+                futures.add(CompletableFuture.runAsync(shard, feedFanoutExecutor));
+            } catch (RejectedExecutionException e) {
+                // 线程池队列已满或已关闭，由分发线程直接执行该分片，失败时异常交由上层重试
+                shard.run();
+            }
+        });
+
+        // 等待全部分片完成
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+
+        if (total == 0) {
+            log.debug("用户{}没有活跃粉丝，无需推送", post.getUserId());
+            return;
+        }
+
+        log.info("分片推模式分发完成，共推送给{}个粉丝，分片数：{}，耗时：{}ms",
+                total, futures.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 按粉丝ID游标逐页读取活跃粉丝
+     *
+     * @param authorId 作者ID
+     * @param consumer 每页粉丝ID的处理逻辑
+     * @return 粉丝总数
+     */
+    private int forEachFollowerPage(Long authorId, Consumer<List<Long>> consumer) {
+        int pageSize = feedConfig.getFanoutShardSize();
+        long lastFollowerId = 0L;
+        int total = 0;
+        while (true) {
+            List<Long> page = followMapper.selectActiveFollowerIdsAfter(authorId, lastFollowerId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            consumer.accept(page);
+            total += page.size();
+            if (page.size() < pageSize) {
+                break;
+            }
+            lastFollowerId = page.get(page.size() - 1);
+        }
+        return total;
+    }
+
+    /**
+     * 将内容写入一组粉丝中近期活跃者的收件箱（数据库）和Redis时间线
+     * 不活跃的粉丝回访时从发件箱重建时间线
+     */
+    private void writeShard(Post post, List<Long> pageFollowerIds) {
+        List<Long> followerIds = userActivityService.filterActive(pageFollowerIds);
+        if (followerIds.isEmpty()) {
+            return;
+        }
 
-        // 2. 批量插入到粉丝的Feed收件箱（数据库）
         List<FeedInbox> feedInboxList = followerIds.stream()
                 .map(followerId -> {
                     FeedInbox feedInbox = new FeedInbox();
                     feedInbox.setUserId(followerId);
                     feedInbox.setPostId(post.getId());
                     feedInbox.setAuthorId(post.getUserId());
-                    feedInbox.setCreatedAt(LocalDateTime.now());
+                    // 收件箱时间取内容创建时间，与Redis分值一致，游标分页共用同一排序
+                    feedInbox.setCreatedAt(post.getCreatedAt());
                     return feedInbox;
                 })
                 .collect(Collectors.toList());
@@ -74,31 +162,10 @@ public class PushFeedStrategy implements FeedStrategy {
             feedInboxMapper.insertBatch(batch);
         }
 
-        // 3. 推送到Redis缓存（异步）
-        followerIds.forEach(followerId -> {
-            String feedKey = RedisKeyUtil.getUserFeedKey(followerId);
-            try {
-                // 使用ZSet存储，score为时间戳
-                redisTemplate.opsForZSet().add(
-                        feedKey,
-                        post.getId(),
-                        System.currentTimeMillis()
-                );
-
-                // 保持Feed流长度限制
-                Long size = redisTemplate.opsForZSet().size(feedKey);
-                if (size != null && size > feedConfig.getMaxFeedSize()) {
-                    redisTemplate.opsForZSet().removeRange(feedKey, 0, size - feedConfig.getMaxFeedSize() - 1);
-                }
-
-                // 设置过期时间
-                redisTemplate.expire(feedKey, feedConfig.getCacheTtl(), TimeUnit.SECONDS);
-            } catch (Exception e) {
-                log.error("推送到Redis失败，用户ID：{}, 内容ID：{}", followerId, post.getId(), e);
-            }
-        });
-
-        log.info("推模式分发完成，共推送给{}个粉丝", followerIds.size());
+        // 按批pipeline推送到粉丝已缓存的Redis时间线，未缓存的在粉丝下次读取时从收件箱重建
+        int written = timelineWriter.appendToTimelines(followerIds, post.getId(),
+                FeedEntry.scoreOf(post.getCreatedAt()));
+        log.debug("内容{}写入{}/{}个粉丝的Redis时间线", post.getId(), written, followerIds.size());
     }
 
     @Override
@@ -0,0 +1,159 @@
+package com.senyu.task;
+
+import com.senyu.config.FeedConfig;
+import com.senyu.entity.FeedDispatchEvent;
+import com.senyu.entity.Post;
+import com.senyu.mapper.FeedDispatchEventMapper;
+import com.senyu.mapper.PostMapper;
+import com.senyu.service.FeedDispatchService;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Feed分发事件中继
+ * 周期性地批量认领到期的分发事件并并行分发，保证进程中断或分发失败后扇出至少执行一次
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class FeedDispatchRelay {
+
+    /**
+     * 清理已完成事件时单条DELETE删除的行数，避免长时间持有锁
+     */
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    @Resource
+    private FeedDispatchEventMapper feedDispatchEventMapper;
+
+    @Resource
+    private PostMapper postMapper;
+
+    @Resource
+    private FeedDispatchService feedDispatchService;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    @Scheduled(fixedDelayString = "${feed.relay-interval-ms:1000}")
+    public void relay() {
+        try {
+            // 有积压时连续处理，单次调度最多处理若干批，不长期占用与其它定时任务共用的调度线程
+            int batches = 1;
+            while (relayBatch() >= feedConfig.getRelayBatchSize()) {
+                if (++batches > feedConfig.getRelayMaxBatchesPerRun()) {
+                    log.debug("分发事件仍有积压，留给下一次调度处理");
+                    break;
+                }
+                log.debug("分发事件仍有积压，继续处理下一批");
+            }
+        } catch (Exception e) {
+            log.error("分发事件中继执行失败", e);
+        }
+    }
+
+    /**
+     * 处理一批到期事件
+     *
+     * @return 本批认领的事件数
+     */
+    private int relayBatch() {
+        // 1. 短事务内锁定并认领一批事件，分发过程不持有数据库锁
+        LocalDateTime leaseUntil = feedDispatchService.leaseUntil();
+        List<FeedDispatchEvent> events = transactionTemplate.execute(status -> {
+            List<FeedDispatchEvent> due = feedDispatchEventMapper.selectDueForUpdate(
+                    LocalDateTime.now(), feedConfig.getRelayBatchSize());
+            if (!due.isEmpty()) {
+                List<Long> ids = due.stream().map(FeedDispatchEvent::getId).toList();
+                feedDispatchEventMapper.claimBatch(ids, leaseUntil);
+            }
+            return due;
+        });
+        if (events == null || events.isEmpty()) {
+            return 0;
+        }
+
+        log.info("中继认领{}个分发事件", events.size());
+
+        // 2. 批量加载内容
+        List<Long> postIds = events.stream().map(FeedDispatchEvent::getPostId).toList();
+        Map<Long, Post> posts = postMapper.selectBatchIds(postIds).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+
+        // 3. 并行分发，等待整批完成
+        List<Long> doneIds = new ArrayList<>();
+        List<FeedDispatchEvent> dispatched = new ArrayList<>();
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (FeedDispatchEvent event : events) {
+            Post post = posts.get(event.getPostId());
+            if (post == null) {
+                // 内容已删除，无需分发
+                doneIds.add(event.getId());
+                continue;
+            }
+            dispatched.add(event);
+            futures.add(feedDispatchService.dispatchAsync(post));
+        }
+
+        // 4. 回写结果：成功的批量标记完成，失败的延后重试
+        for (int i = 0; i < dispatched.size(); i++) {
+            FeedDispatchEvent event = dispatched.get(i);
+            boolean success;
+            try {
+                success = futures.get(i).join();
+            } catch (Exception e) {
+                log.error("分发事件执行异常，事件ID：{}", event.getId(), e);
+                success = false;
+            }
+            if (success) {
+                doneIds.add(event.getId());
+            } else {
+                feedDispatchService.markRetry(event.getId(), event.getRetryCount(), leaseUntil);
+            }
+        }
+        if (!doneIds.isEmpty()) {
+            int marked = feedDispatchEventMapper.markDone(doneIds, leaseUntil);
+            if (marked < doneIds.size()) {
+                log.warn("{}个分发事件租约已过期并被重新认领，未标记完成", doneIds.size() - marked);
+            }
+        }
+
+        log.info("中继分发完成，成功：{}，失败：{}", doneIds.size(), events.size() - doneIds.size());
+        return events.size();
+    }
+
+    /**
+     * 分批删除超过保留期的已完成事件，控制分发事件表的大小
+     * 分发失败的事件保留，供人工排查
+     */
+    @Scheduled(cron = "0 30 * * * ?")
+    public void purgeDone() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusDays(feedConfig.getRelayDoneRetentionDays());
+            int total = 0;
+            int deleted;
+            do {
+                deleted = feedDispatchEventMapper.deleteDoneBefore(before, PURGE_BATCH_SIZE);
+                total += deleted;
+            } while (deleted >= PURGE_BATCH_SIZE);
+            log.info("清理已完成的分发事件{}个", total);
+        } catch (Exception e) {
+            log.error("清理分发事件失败", e);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.senyu.topic;
+
+import cn.hutool.core.util.StrUtil;
+import com.senyu.cache.PostCache;
+import com.senyu.config.FeedConfig;
+import com.senyu.counter.PostCounterDelta;
+import com.senyu.dto.TopicTrendVO;
+import com.senyu.entity.Post;
+import com.senyu.event.PostPublishedEvent;
+import com.senyu.util.RedisKeyUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 话题热榜
+ * <ul>
+ *     <li>分钟桶：发布与互动按话题累加到当前分钟的Hash，保留一天以上</li>
+ *     <li>滑动窗口：每个窗口一个ZSet，写入分钟桶的同时按前向衰减累加得分；
+ *     分钟桶移出窗口时按写入时相同的系数从ZSet扣除，每次只处理新移出的分钟，开销与历史长度无关</li>
+ *     <li>定期重设衰减基准并裁剪，避免指数溢出</li>
+ * </ul>
+ * 脚本均为原子操作，并以Redis中记录的已移出分钟去重，多实例同时执行无需加锁
+ *
+ * @author senyu
+ */
+@Slf4j
+@Component
+public class TopicTrendTracker {
+
+    /**
+     * 发布一条内容计入话题的热度，互动按{@link PostCounterDelta#hotScore()}计入
+     */
+    private static final double POST_WEIGHT = 10.0;
+
+    /**
+     * 分钟桶保留时长，超过最长窗口，积压的移出任务仍能读到分钟桶
+     */
+    private static final long BUCKET_RETENTION_MINUTES = TrendWindow.DAY.getMinutes() * 2L;
+
+    /**
+     * 热榜单次查询的最大话题数
+     */
+    private static final int MAX_TRENDING_LIMIT = 100;
+
+    private static final TrendWindow[] WINDOWS = TrendWindow.values();
+
+    /**
+     * 累加话题热度到分钟桶和各窗口
+     * KEYS: 分钟桶, 基准时间, 之后每个窗口依次为 热榜, 已移出分钟
+     * ARGV: 分钟, 分钟桶过期秒数, 窗口数, 各窗口λ, 之后依次为 话题, 热度
+     */
+    private static final RedisScript<Long> ADD_SCRIPT = RedisScript.of(
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local landmark = tonumber(redis.call('GET', KEYS[2]))\n" +
+            "if landmark == nil then\n" +
+            "    landmark = now\n" +
+            "    redis.call('SET', KEYS[2], now)\n" +
+            "end\n" +
+            "local minute = tonumber(ARGV[1])\n" +
+            "local windows = tonumber(ARGV[3])\n" +
+            "local boosts = {}\n" +
+            "for w = 1, windows do\n" +
+            "    local expired = tonumber(redis.call('GET', KEYS[2 + w * 2]))\n" +
+            "    if expired == nil or minute > expired then\n" +
+            "        boosts[w] = math.exp(tonumber(ARGV[3 + w]) * (minute * 60000 - landmark))\n" +
+            "    end\n" +
+            "end\n" +
+            "for i = 4 + windows, #ARGV, 2 do\n" +
+            "    redis.call('HINCRBYFLOAT', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+            "    for w = 1, windows do\n" +
+            "        if boosts[w] ~= nil then\n" +
+            "            redis.call('ZINCRBY', KEYS[1 + w * 2], tonumber(ARGV[i + 1]) * boosts[w], ARGV[i])\n" +
+            "        end\n" +
+            "    end\n" +
+            "end\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "return (#ARGV - 3 - windows) / 2",
+            Long.class);
+
+    /**
+     * 将一个分钟桶从窗口中扣除，已扣除过的分钟直接返回
+     * KEYS: 分钟桶, 基准时间, 热榜, 已移出分钟
+     * ARGV: 分钟, λ
+     */
+    private static final RedisScript<Long> EXPIRE_SCRIPT = RedisScript.of(
+            "local minute = tonumber(ARGV[1])\n" +
+            "local expired = tonumber(redis.call('GET', KEYS[4]))\n" +
+            "if expired ~= nil and minute <= expired then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[4], minute)\n" +
+            "local landmark = tonumber(redis.call('GET', KEYS[2]))\n" +
+            "local fields = redis.call('HGETALL', KEYS[1])\n" +
+            "if landmark == nil or #fields == 0 then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "local boost = math.exp(tonumber(ARGV[2]) * (minute * 60000 - landmark))\n" +
+            "for i = 1, #fields, 2 do\n" +
+            "    local remaining = tonumber(redis.call('ZINCRBY', KEYS[3], -tonumber(fields[i + 1]) * boost, fields[i]))\n" +
+            "    if remaining <= boost * 1e-6 then\n" +
+            "        redis.call('ZREM', KEYS[3], fields[i])\n" +
+            "    end\n" +
+            "end\n" +
+            "return #fields / 2",
+            Long.class);
+
+    /**
+     * 重设基准时间：各窗口按各自的λ整体缩放后裁剪
+     * KEYS: 基准时间, 之后为各窗口热榜
+     * ARGV: 保留数量, 之后为各窗口λ
+     */
+    private static final RedisScript<Long> REBASE_SCRIPT = RedisScript.of(
+            "local landmark = tonumber(redis.call('GET', KEYS[1]))\n" +
+            "if landmark == nil then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "if now <= landmark then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "for w = 2, #KEYS do\n" +
+            "    local factor = math.exp(-tonumber(ARGV[w]) * (now - landmark))\n" +
+            "    redis.call('ZUNIONSTORE', KEYS[w], 1, KEYS[w], 'WEIGHTS', tostring(factor))\n" +
+            "    redis.call('ZREMRANGEBYRANK', KEYS[w], 0, -(tonumber(ARGV[1]) + 1))\n" +
+            "end\n" +
+            "redis.call('SET', KEYS[1], now)\n" +
+            "return 1",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private PostCache postCache;
+
+    @Resource
+    private FeedConfig feedConfig;
+
+    /**
+     * 规范化话题：去除首尾空白，空话题返回null
+     */
+    public static String normalize(String topic) {
+        return StrUtil.isBlank(topic) ? null : topic.trim();
+    }
+
+    /**
+     * 发布事务提交后计入话题热度
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPostPublished(PostPublishedEvent event) {
+        String topic = normalize(event.getPost().getTopic());
+        if (topic != null) {
+            record(Map.of(topic, POST_WEIGHT));
+        }
+    }
+
+    /**
+     * 将一批计数增量按内容所属话题计入热度
+     */
+    public void recordAll(List<PostCounterDelta> deltas) {
+        try {
+            List<Long> postIds = deltas.stream().map(PostCounterDelta::getPostId).toList();
+            Map<Long, String> topics = new HashMap<>(postIds.size() * 2);
+            for (Post post : postCache.getAll(postIds)) {
+                String topic = normalize(post.getTopic());
+                if (topic != null) {
+                    topics.put(post.getId(), topic);
+                }
+            }
+
+            Map<String, Double> scores = new HashMap<>();
+            for (PostCounterDelta delta : deltas) {
+                String topic = topics.get(delta.getPostId());
+                double score = delta.hotScore();
+                if (topic != null && score != 0) {
+                    scores.merge(topic, score, Double::sum);
+                }
+            }
+            record(scores);
+        } catch (Exception e) {
+            log.warn("更新话题热度失败，数量：{}", deltas.size(), e);
+        }
+    }
+
+    /**
+     * 读取窗口内热度最高的话题
+     *
+     * @param window 滑动窗口
+     * @param limit  数量
+     */
+    public List<TopicTrendVO> trending(TrendWindow window, int limit) {
+        limit = Math.max(1, Math.min(limit, MAX_TRENDING_LIMIT));
+        String landmark = stringRedisTemplate.opsForValue().get(RedisKeyUtil.getTopicTrendingLandmarkKey());
+        Set<TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(RedisKeyUtil.getTopicTrendingKey(window.getCode()), 0, limit - 1);
+        if (landmark == null || tuples == null || tuples.isEmpty()) {
+            return List.of();
+        }
+
+        // 存储的得分以基准时间为参照，换算为当前时刻的热度
+        double decay = Math.exp(-decayRate(window) * (System.currentTimeMillis() - Long.parseLong(landmark)));
+        List<TopicTrendVO> result = new ArrayList<>(tuples.size());
+        for (TypedTuple<String> tuple : tuples) {
+            if (tuple.getValue() != null && tuple.getScore() != null) {
+                result.add(new TopicTrendVO(tuple.getValue(), tuple.getScore() * decay));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 扣除移出窗口的分钟桶，并重设衰减基准
+     */
+    @Scheduled(fixedDelayString = "${feed.topic-trending-interval-ms:10000}")
+    public void slide() {
+        try {
+            long currentMinute = currentMinute();
+            for (TrendWindow window : WINDOWS) {
+                expire(window, currentMinute);
+            }
+            rebase();
+        } catch (Exception e) {
+            log.warn("话题热榜滑动失败：{}", e.getMessage());
+        }
+    }
+
+    private void record(Map<String, Double> scores) {
+        if (scores.isEmpty()) {
+            return;
+        }
+        long minute = currentMinute();
+        List<String> keys = new ArrayList<>(2 + WINDOWS.length * 2);
+        keys.add(RedisKeyUtil.getTopicBucketKey(minute));
+        keys.add(RedisKeyUtil.getTopicTrendingLandmarkKey());
+        List<String> args = new ArrayList<>(3 + WINDOWS.length + scores.size() * 2);
+        args.add(String.valueOf(minute));
+        args.add(String.valueOf(TimeUnit.MINUTES.toSeconds(BUCKET_RETENTION_MINUTES)));
+        args.add(String.valueOf(WINDOWS.length));
+        for (TrendWindow window : WINDOWS) {
+            keys.add(RedisKeyUtil.getTopicTrendingKey(window.getCode()));
+            keys.add(RedisKeyUtil.getTopicTrendingExpiredKey(window.getCode()));
+            args.add(String.valueOf(decayRate(window)));
+        }
+        scores.forEach((topic, score) -> {
+            args.add(topic);
+            args.add(String.valueOf(score));
+        });
+
+        try {
+            stringRedisTemplate.execute(ADD_SCRIPT, keys, args.toArray());
+        } catch (Exception e) {
+            log.warn("更新话题热度失败，话题数：{}", scores.size(), e);
+        }
+    }
+
+    /**
+     * 依次扣除上次处理之后移出窗口的分钟桶
+     */
+    private void expire(TrendWindow window, long currentMinute) {
+        String expiredKey = RedisKeyUtil.getTopicTrendingExpiredKey(window.getCode());
+        long upTo = currentMinute - window.getMinutes();
+        String expired = stringRedisTemplate.opsForValue().get(expiredKey);
+        // 首次运行从当前移出的分钟开始；停机积压时只回溯到分钟桶的保留时长
+        long from = expired == null ? upTo
+                : Math.max(Long.parseLong(expired) + 1, currentMinute - BUCKET_RETENTION_MINUTES);
+
+        String trendingKey = RedisKeyUtil.getTopicTrendingKey(window.getCode());
+        String landmarkKey = RedisKeyUtil.getTopicTrendingLandmarkKey();
+        String rate = String.valueOf(decayRate(window));
+        for (long minute = from; minute <= upTo; minute++) {
+            stringRedisTemplate.execute(EXPIRE_SCRIPT,
+                    List.of(RedisKeyUtil.getTopicBucketKey(minute), landmarkKey, trendingKey, expiredKey),
+                    String.valueOf(minute), rate);
+        }
+    }
+
+    private void rebase() {
+        List<String> keys = new ArrayList<>(1 + WINDOWS.length);
+        keys.add(RedisKeyUtil.getTopicTrendingLandmarkKey());
+        List<String> args = new ArrayList<>(1 + WINDOWS.length);
+        args.add(String.valueOf(feedConfig.getTopicTrendingMaxSize()));
+        for (TrendWindow window : WINDOWS) {
+            keys.add(RedisKeyUtil.getTopicTrendingKey(window.getCode()));
+            args.add(String.valueOf(decayRate(window)));
+        }
+        stringRedisTemplate.execute(REBASE_SCRIPT, keys, args.toArray());
+    }
+
+    /**
+     * 衰减系数λ（每毫秒），经过一个半衰期热度减半
+     */
+    private double decayRate(TrendWindow window) {
+        long halfLifeMinutes = window == TrendWindow.HOUR
+                ? feedConfig.getTopicTrendingHourHalfLifeMinutes()
+                : feedConfig.getTopicTrendingDayHalfLifeMinutes();
+        return Math.log(2) / TimeUnit.MINUTES.toMillis(halfLifeMinutes);
+    }
+
+    private static long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,50 @@
+package com.senyu.topic;
+
+import com.senyu.common.ResultCode;
+import com.senyu.exception.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 话题热榜的滑动窗口
+ *
+ * @author senyu
+ */
+@Getter
+@AllArgsConstructor
+public enum TrendWindow {
+
+    /**
+     * 最近1小时
+     */
+    HOUR("1h", 60),
+
+    /**
+     * 最近24小时
+     */
+    DAY("24h", 1440);
+
+    /**
+     * 对外的窗口标识，同时用于Redis Key
+     */
+    private final String code;
+
+    /**
+     * 窗口包含的分钟数
+     */
+    private final int minutes;
+
+    /**
+     * 按窗口标识查找
+     *
+     * @throws BusinessException 窗口标识非法
+     */
+    public static TrendWindow of(String code) {
+        for (TrendWindow window : values()) {
+            if (window.code.equalsIgnoreCase(code)) {
+                return window;
+            }
+        }
+        throw new BusinessException(ResultCode.PARAM_ERROR);
+    }
+}
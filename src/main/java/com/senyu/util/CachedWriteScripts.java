@@ -0,0 +1,46 @@
+package com.senyu.util;
+
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * 只写入已缓存集合的Lua脚本
+ * 未缓存的集合若只写入新成员，读取时会被当作完整的数据，因此key不存在时跳过，留给读取方从数据库整体加载
+ *
+ * @author senyu
+ */
+public final class CachedWriteScripts {
+
+    /**
+     * KEYS[1]不存在时直接返回0
+     */
+    private static final String IF_EXISTS_GUARD =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then\n" +
+            "    return 0\n" +
+            "end\n";
+
+    /**
+     * 集合已缓存时添加成员并刷新过期时间
+     * ARGV: 成员, 过期秒数
+     */
+    public static final RedisScript<Long> SADD_IF_EXISTS = RedisScript.of(
+            IF_EXISTS_GUARD +
+            "redis.call('SADD', KEYS[1], ARGV[1])\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+            "return 1",
+            Long.class);
+
+    /**
+     * 时间线ZSet已缓存时写入成员，按排名裁剪到最大长度并刷新过期时间
+     * ARGV: 分值, 成员, 最大长度, 过期秒数
+     */
+    public static final RedisScript<Long> ZADD_IF_EXISTS = RedisScript.of(
+            IF_EXISTS_GUARD +
+            "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])\n" +
+            "redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -(tonumber(ARGV[3]) + 1))\n" +
+            "redis.call('EXPIRE', KEYS[1], ARGV[4])\n" +
+            "return 1",
+            Long.class);
+
+    private CachedWriteScripts() {
+    }
+}
@@ -1,15 +1,23 @@
 package com.senyu.util;
 
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.senyu.common.ResultCode;
 import com.senyu.config.JwtConfig;
+import com.senyu.dto.JwtPrincipal;
+import com.senyu.exception.BusinessException;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -21,17 +29,32 @@ import java.util.Map;
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtUtil {
 
     private final JwtConfig jwtConfig;
 
     /**
-     * 获取密钥
+     * 签名密钥与解析器线程安全，启动时创建一次
      */
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private final SecretKey signingKey;
+
+    private final JwtParser parser;
+
+    /**
+     * 验签结果缓存，key为Token的SHA-256摘要，不在内存中保存Token原文
+     */
+    private final Cache<String, JwtPrincipal> verifiedTokens;
+
+    public JwtUtil(JwtConfig jwtConfig) {
+        this.jwtConfig = jwtConfig;
+        this.signingKey = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(jwtConfig.getVerifiedTokenCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(jwtConfig.getVerifiedTokenCacheTtlSeconds()))
+                .build();
     }
 
     /**
@@ -47,7 +70,7 @@ public class JwtUtil {
         claims.put("userId", userId);
         claims.put("username", username);
         claims.put("tokenVersion", tokenVersion);
-        claims.put("tokenType", "access");
+        claims.put("tokenType", JwtPrincipal.TOKEN_TYPE_ACCESS);
 
         return generateToken(claims, jwtConfig.getAccessTokenExpiration());
     }
@@ -63,7 +86,7 @@ public class JwtUtil {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId);
         claims.put("tokenVersion", tokenVersion);
-        claims.put("tokenType", "refresh");
+        claims.put("tokenType", JwtPrincipal.TOKEN_TYPE_REFRESH);
 
         return generateToken(claims, jwtConfig.getRefreshTokenExpiration());
     }
@@ -84,121 +107,72 @@ public class JwtUtil {
                 .issuer(jwtConfig.getIssuer())
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     /**
-     * 从Token中获取Claims
-     *
-     * @param token JWT token
-     * @return Claims
-     */
-    public Claims getClaimsFromToken(String token) {
-        try {
-            return Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-        } catch (Exception e) {
-            log.error("解析JWT token失败: {}", e.getMessage());
-            return null;
-        }
-    }
-
-    /**
-     * 从Token中获取用户ID
+     * 解析并验证Token，一次验签得到全部身份信息
+     * 验签结果按Token的SHA-256摘要缓存，同一Token的后续请求不再重复验签
      *
      * @param token JWT token
-     * @return 用户ID
+     * @return 身份信息
+     * @throws BusinessException Token已过期或无效
      */
-    public Long getUserIdFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        if (claims == null) {
-            return null;
+    public JwtPrincipal parseToken(String token) {
+        String cacheKey = DigestUtil.sha256Hex(token);
+        JwtPrincipal principal = verifiedTokens.getIfPresent(cacheKey);
+        if (principal == null) {
+            principal = verify(token);
+            verifiedTokens.put(cacheKey, principal);
         }
-        Object userId = claims.get("userId");
-        if (userId instanceof Integer) {
-            return ((Integer) userId).longValue();
+        if (principal.isExpired()) {
+            verifiedTokens.invalidate(cacheKey);
+            throw new BusinessException(ResultCode.TOKEN_EXPIRED);
         }
-        return (Long) userId;
-    }
-
-    /**
-     * 从Token中获取用户名
-     *
-     * @param token JWT token
-     * @return 用户名
-     */
-    public String getUsernameFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims != null ? (String) claims.get("username") : null;
+        return principal;
     }
 
     /**
-     * 从Token中获取Token版本号
+     * 从Token中获取Claims，不经过验签缓存
      *
      * @param token JWT token
-     * @return Token版本号
+     * @return Claims，Token无效或已过期时返回null
      */
-    public Integer getTokenVersionFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims != null ? (Integer) claims.get("tokenVersion") : null;
-    }
-
-    /**
-     * 从Token中获取Token类型
-     *
-     * @param token JWT token
-     * @return Token类型
-     */
-    public String getTokenTypeFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims != null ? (String) claims.get("tokenType") : null;
-    }
-
-    /**
-     * 验证Token是否过期
-     *
-     * @param token JWT token
-     * @return true-未过期，false-已过期
-     */
-    public boolean isTokenExpired(String token) {
+    public Claims getClaimsFromToken(String token) {
         try {
-            Claims claims = getClaimsFromToken(token);
-            if (claims == null) {
-                return true;
-            }
-            Date expiration = claims.getExpiration();
-            return expiration.before(new Date());
+            return parser.parseSignedClaims(token).getPayload();
         } catch (Exception e) {
-            return true;
+            log.error("解析JWT token失败: {}", e.getMessage());
+            return null;
         }
     }
 
-    /**
-     * 验证Token是否有效
-     *
-     * @param token        JWT token
-     * @param userId       用户ID
-     * @param tokenVersion Token版本号
-     * @return true-有效，false-无效
-     */
-    public boolean validateToken(String token, Long userId, Integer tokenVersion) {
+    private JwtPrincipal verify(String token) {
+        Claims claims;
         try {
-            Long tokenUserId = getUserIdFromToken(token);
-            Integer tokenVersionFromToken = getTokenVersionFromToken(token);
-
-            return tokenUserId != null
-                    && tokenUserId.equals(userId)
-                    && tokenVersionFromToken != null
-                    && tokenVersionFromToken.equals(tokenVersion)
-                    && !isTokenExpired(token);
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (ExpiredJwtException e) {
+            throw new BusinessException(ResultCode.TOKEN_EXPIRED);
         } catch (Exception e) {
-            log.error("验证JWT token失败: {}", e.getMessage());
-            return false;
+            log.warn("解析JWT token失败: {}", e.getMessage());
+            throw new BusinessException(ResultCode.INVALID_TOKEN);
         }
+        Date expiration = claims.getExpiration();
+        return new JwtPrincipal(
+                toLong(claims.get("userId")),
+                claims.get("username", String.class),
+                toInteger(claims.get("tokenVersion")),
+                claims.get("tokenType", String.class),
+                expiration == null ? null : expiration.toInstant());
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
     }
 
     /**
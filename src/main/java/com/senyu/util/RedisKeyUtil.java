@@ -13,6 +13,7 @@ public class RedisKeyUtil {
     private static final String FOLLOWER_PREFIX = "follower:";
     private static final String FOLLOWING_PREFIX = "following:";
     private static final String TOKEN_PREFIX = "token:";
+    private static final String TOPIC_PREFIX = "topic:";
 
     /**
      * 用户Feed流缓存Key
@@ -30,6 +31,38 @@ public class RedisKeyUtil {
         return FEED_PREFIX + "outbox:" + userId;
     }
 
+    /**
+     * 话题时间线缓存Key
+     * 使用ZSet存储，score为时间戳
+     */
+    public static String getTopicFeedKey(String topic) {
+        return FEED_PREFIX + "topic:" + topic;
+    }
+
+    /**
+     * 用户推荐结果缓存Key
+     * 使用ZSet存储，score为按推荐得分排序后的名次倒数，分页游标与时间线一致
+     */
+    public static String getUserRecommendKey(Long userId) {
+        return FEED_PREFIX + "recommend:" + userId;
+    }
+
+    /**
+     * 用户已读内容布隆过滤器Key
+     * 使用String位图存储，按周期轮换
+     */
+    public static String getUserSeenKey(Long userId, long generation) {
+        return FEED_PREFIX + "seen:" + userId + ":" + generation;
+    }
+
+    /**
+     * 拉模式作者集合Key
+     * 使用Set存储，粉丝数超过拉模式阈值、内容只写发件箱的作者ID
+     */
+    public static String getPullAuthorsKey() {
+        return FEED_PREFIX + "pull:authors";
+    }
+
     /**
      * 用户信息缓存Key
      */
@@ -44,6 +77,22 @@ public class RedisKeyUtil {
         return POST_PREFIX + "info:" + postId;
     }
 
+    /**
+     * 内容计数缓存Key
+     * 使用Hash存储，field为计数类型，与内容详情分开缓存，计数变化只更新Hash
+     */
+    public static String getPostCounterKey(Long postId) {
+        return POST_PREFIX + "counter:" + postId;
+    }
+
+    /**
+     * 内容计数落库版本号Key
+     * 使用String存储，计数Hash缺失期间每次落库递增，短时间后过期
+     */
+    public static String getPostCounterEpochKey(Long postId) {
+        return POST_PREFIX + "counter:epoch:" + postId;
+    }
+
     /**
      * 用户粉丝列表Key
      * 使用Set存储
@@ -67,6 +116,14 @@ public class RedisKeyUtil {
         return POST_PREFIX + "hot";
     }
 
+    /**
+     * 热门内容衰减基准时间Key
+     * 使用String存储毫秒时间戳，不存在时表示热门排行尚未初始化
+     */
+    public static String getHotPostsLandmarkKey() {
+        return POST_PREFIX + "hot:landmark";
+    }
+
     /**
      * Token黑名单Key
      * 使用String存储，value为过期时间
@@ -75,6 +132,38 @@ public class RedisKeyUtil {
         return TOKEN_PREFIX + "blacklist:" + token;
     }
 
+    /**
+     * 用户活跃度索引Key
+     * 使用ZSet存储，member为用户ID，score为最后访问时间戳
+     */
+    public static String getUserActivityKey() {
+        return USER_PREFIX + "activity";
+    }
+
+    /**
+     * 用户活跃度索引开始记录的时间Key
+     * 使用String存储毫秒时间戳，早于活跃窗口起点时索引才完整
+     */
+    public static String getUserActivitySinceKey() {
+        return USER_PREFIX + "activity:since";
+    }
+
+    /**
+     * 用户兴趣话题Key
+     * 使用ZSet存储，member为话题，score为用户在该话题下的互动权重
+     */
+    public static String getUserInterestKey(Long userId) {
+        return USER_PREFIX + "interest:" + userId;
+    }
+
+    /**
+     * 认证快照失效通知频道
+     * Pub/Sub消息体为用户ID，各实例收到后清除本地的认证快照
+     */
+    public static String getAuthInvalidateChannel() {
+        return USER_PREFIX + "auth:invalidate";
+    }
+
     /**
      * 在线用户Key
      * 使用Set存储
@@ -82,4 +171,36 @@ public class RedisKeyUtil {
     public static String getOnlineUsersKey() {
         return USER_PREFIX + "online";
     }
+
+    /**
+     * 话题分钟桶Key
+     * 使用Hash存储，field为话题，value为该分钟内的热度增量
+     */
+    public static String getTopicBucketKey(long minute) {
+        return TOPIC_PREFIX + "bucket:" + minute;
+    }
+
+    /**
+     * 话题热榜Key
+     * 使用ZSet存储，member为话题，score为窗口内按时间衰减的热度
+     */
+    public static String getTopicTrendingKey(String window) {
+        return TOPIC_PREFIX + "trending:" + window;
+    }
+
+    /**
+     * 话题热榜已移出窗口的分钟Key
+     * 使用String存储，该分钟及之前的分钟桶已从热榜中扣除
+     */
+    public static String getTopicTrendingExpiredKey(String window) {
+        return TOPIC_PREFIX + "trending:" + window + ":expired";
+    }
+
+    /**
+     * 话题热榜衰减基准时间Key
+     * 使用String存储毫秒时间戳，各窗口共用
+     */
+    public static String getTopicTrendingLandmarkKey() {
+        return TOPIC_PREFIX + "trending:landmark";
+    }
 }
@@ -0,0 +1,17 @@
+-- 新增Feed分发事件表（事务性发件箱）
+-- 版本: V3
+-- 描述: 内容与分发事件在同一事务中写入，由中继任务批量分发，保证扇出至少执行一次
+
+CREATE TABLE IF NOT EXISTS `feed_dispatch_event` (
+    `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT 'ID',
+    `post_id` BIGINT NOT NULL COMMENT '内容ID',
+    `author_id` BIGINT NOT NULL COMMENT '内容作者ID',
+    `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态：0-待分发 1-分发中 2-已完成 3-失败',
+    `retry_count` INT NOT NULL DEFAULT 0 COMMENT '重试次数',
+    `next_retry_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '可被中继处理的时间（分发中时为租约到期时间）',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_post (`post_id`),
+    INDEX idx_status_next_retry (`status`, `next_retry_at`),
+    FOREIGN KEY (`post_id`) REFERENCES `post`(`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Feed分发事件表';
@@ -0,0 +1,5 @@
+-- 为收件箱添加唯一约束
+-- 版本: V4
+-- 描述: 分发至少执行一次，分片失败重试时会重复写入，唯一约束配合INSERT IGNORE保证幂等
+
+ALTER TABLE `feed_inbox` ADD UNIQUE INDEX `uk_user_post_id` (`user_id`, `post_id`);
@@ -0,0 +1,6 @@
+-- 为关注表添加粉丝游标分页索引
+-- 版本: V5
+-- 描述: 推模式按(followee_id, follower_id)做keyset分页流式读取粉丝，替换原单列索引
+
+ALTER TABLE `follow` ADD INDEX `idx_followee_follower` (`followee_id`, `follower_id`);
+ALTER TABLE `follow` DROP INDEX `idx_followee`;
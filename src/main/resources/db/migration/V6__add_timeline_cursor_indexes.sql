@@ -0,0 +1,9 @@
+-- 为时间线游标分页添加复合索引
+-- 版本: V6
+-- 描述: 时间线游标为(创建时间, 内容ID)，收件箱与内容表按该顺序做索引定位，同一时间的内容无需回表排序
+
+ALTER TABLE `feed_inbox` ADD INDEX `idx_user_created_post` (`user_id`, `created_at` DESC, `post_id` DESC);
+ALTER TABLE `feed_inbox` DROP INDEX `idx_user_post`;
+
+ALTER TABLE `post` ADD INDEX `idx_user_created` (`user_id`, `created_at`);
+ALTER TABLE `post` DROP INDEX `idx_user_id`;
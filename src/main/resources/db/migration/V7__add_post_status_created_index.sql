@@ -0,0 +1,6 @@
+-- 为热门排行重建添加复合索引
+-- 版本: V7
+-- 描述: 热门排行从数据库重建时按(状态, 创建时间)范围扫描最近发布的内容，取代按状态单列索引和全表加载
+
+ALTER TABLE `post` ADD INDEX `idx_status_created` (`status`, `created_at`);
+ALTER TABLE `post` DROP INDEX `idx_status`;
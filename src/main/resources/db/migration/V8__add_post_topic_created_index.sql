@@ -0,0 +1,6 @@
+-- 为话题Feed流添加复合索引
+-- 版本: V8
+-- 描述: 话题Feed流按(创建时间, 内容ID)游标分页，按(话题, 创建时间)索引倒序扫描，无需文件排序
+
+ALTER TABLE `post` ADD INDEX `idx_topic_created` (`topic`, `created_at`);
+ALTER TABLE `post` DROP INDEX `idx_topic`;
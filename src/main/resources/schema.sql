@@ -39,10 +39,10 @@ CREATE TABLE IF NOT EXISTS `post` (
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     `deleted` TINYINT(1) DEFAULT 0 COMMENT '逻辑删除',
-    INDEX idx_user_id (`user_id`),
+    INDEX idx_user_created (`user_id`, `created_at`),
     INDEX idx_created_at (`created_at`),
-    INDEX idx_status (`status`),
-    INDEX idx_topic (`topic`),
+    INDEX idx_status_created (`status`, `created_at`),
+    INDEX idx_topic_created (`topic`, `created_at`),
     FOREIGN KEY (`user_id`) REFERENCES `user`(`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='内容表';
 
@@ -55,7 +55,7 @@ CREATE TABLE IF NOT EXISTS `follow` (
     `deleted` TINYINT(1) DEFAULT 0 COMMENT '逻辑删除',
     UNIQUE KEY uk_follow (`follower_id`, `followee_id`),
     INDEX idx_follower (`follower_id`),
-    INDEX idx_followee (`followee_id`),
+    INDEX idx_followee_follower (`followee_id`, `follower_id`),
     FOREIGN KEY (`follower_id`) REFERENCES `user`(`id`),
     FOREIGN KEY (`followee_id`) REFERENCES `user`(`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='关注关系表';
@@ -67,7 +67,8 @@ CREATE TABLE IF NOT EXISTS `feed_inbox` (
     `post_id` BIGINT NOT NULL COMMENT '内容ID',
     `author_id` BIGINT NOT NULL COMMENT '内容作者ID',
     `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-    INDEX idx_user_post (`user_id`, `created_at` DESC),
+    UNIQUE KEY uk_user_post_id (`user_id`, `post_id`),
+    INDEX idx_user_created_post (`user_id`, `created_at` DESC, `post_id` DESC),
     INDEX idx_post (`post_id`),
     FOREIGN KEY (`user_id`) REFERENCES `user`(`id`),
     FOREIGN KEY (`post_id`) REFERENCES `post`(`id`),
@@ -86,6 +87,21 @@ CREATE TABLE IF NOT EXISTS `feed_outbox` (
     FOREIGN KEY (`post_id`) REFERENCES `post`(`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='发件箱表';
 
+-- Feed分发事件表（事务性发件箱）
+CREATE TABLE IF NOT EXISTS `feed_dispatch_event` (
+    `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT 'ID',
+    `post_id` BIGINT NOT NULL COMMENT '内容ID',
+    `author_id` BIGINT NOT NULL COMMENT '内容作者ID',
+    `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态：0-待分发 1-分发中 2-已完成 3-失败',
+    `retry_count` INT NOT NULL DEFAULT 0 COMMENT '重试次数',
+    `next_retry_at` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '可被中继处理的时间（分发中时为租约到期时间）',
+    `created_at` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY uk_post (`post_id`),
+    INDEX idx_status_next_retry (`status`, `next_retry_at`),
+    FOREIGN KEY (`post_id`) REFERENCES `post`(`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Feed分发事件表';
+
 -- 插入测试数据
 INSERT INTO `user` (`id`, `username`, `nickname`, `avatar`, `bio`, `follower_count`, `following_count`, `post_count`, `is_active`)
 VALUES